@@ -0,0 +1,198 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import com.parship.roperty.DomainResolver;
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.DomainSpecificValueFactoryWithOffHeapValues;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.RopertyImpl;
+
+
+/**
+ * Measures the retained heap of synthetic Roperty stores for every combination of KeyValuesFactory and
+ * DomainSpecificValueFactory. The retained size is the size of the object graph reachable from the RopertyImpl,
+ * walked with JOL, so shared structures like symbol tables and deduplication pools are included.
+ * Values stored off heap are reported separately.
+ * <p>
+ * Every run appends one line per combination to a CSV history file, to track the footprint over time.
+ * <pre>
+ * Options: --keys 10000 --overrides 10 --skewed --domains 4 --cardinality 32 --wildcards 0.2 --changeSets 0.1
+ *          --history footprint-history.csv --version 1.2.0
+ * </pre>
+ */
+public class FootprintHarness {
+
+    private static final List<String> KEY_VALUES_FACTORIES = Arrays.asList("default", "copyOnWrite");
+    private static final List<String> DOMAIN_SPECIFIC_VALUE_FACTORIES = Arrays.asList("default", "interning", "deduplication", "compactText", "offHeap");
+    private static final String CSV_HEADER = "timestamp,version,keyValuesFactory,domainSpecificValueFactory,keys,overrides,skewed,domains,"
+        + "cardinality,values,retainedBytes,offHeapBytes,bytesPerKey,bytesPerValue";
+
+    private int keyCount = 10000;
+    private int overridesPerKey = 10;
+    private boolean skewedOverrides;
+    private int domainCount = 4;
+    private int domainCardinality = 32;
+    private double wildcardRatio = 0.2;
+    private double changeSetRatio = 0.1;
+    private Path history;
+    private String version = "unknown";
+
+    public static void main(final String[] args) throws IOException {
+        FootprintHarness harness = new FootprintHarness();
+        harness.parse(args);
+        harness.run(System.out);
+    }
+
+    private void parse(final String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--keys":
+                    keyCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--overrides":
+                    overridesPerKey = Integer.parseInt(args[++i]);
+                    break;
+                case "--skewed":
+                    skewedOverrides = true;
+                    break;
+                case "--domains":
+                    domainCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--cardinality":
+                    domainCardinality = Integer.parseInt(args[++i]);
+                    break;
+                case "--wildcards":
+                    wildcardRatio = Double.parseDouble(args[++i]);
+                    break;
+                case "--changeSets":
+                    changeSetRatio = Double.parseDouble(args[++i]);
+                    break;
+                case "--history":
+                    history = Paths.get(args[++i]);
+                    break;
+                case "--version":
+                    version = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private void run(final PrintStream out) throws IOException {
+        String timestamp = Instant.now().toString();
+        List<String> rows = new ArrayList<>();
+        out.printf("%-12s %-14s %10s %14s %12s %10s %10s%n", "keyValues", "values", "valueCount", "retainedBytes", "offHeapBytes", "bytes/key", "bytes/value");
+        for (String keyValuesFactory : KEY_VALUES_FACTORIES) {
+            for (String domainSpecificValueFactory : DOMAIN_SPECIFIC_VALUE_FACTORIES) {
+                Footprint footprint = measure(keyValuesFactory, domainSpecificValueFactory);
+                out.printf(Locale.ROOT, "%-12s %-14s %10d %14d %12d %10.1f %10.1f%n", keyValuesFactory, domainSpecificValueFactory,
+                    footprint.values, footprint.retainedBytes, footprint.offHeapBytes, footprint.bytesPerKey(), footprint.bytesPerValue());
+                rows.add(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d,%b,%d,%d,%d,%d,%d,%.1f,%.1f", timestamp, version, keyValuesFactory,
+                    domainSpecificValueFactory, keyCount, overridesPerKey, skewedOverrides, domainCount, domainCardinality, footprint.values,
+                    footprint.retainedBytes, footprint.offHeapBytes, footprint.bytesPerKey(), footprint.bytesPerValue()));
+            }
+        }
+        if (history != null) {
+            appendToHistory(rows);
+            out.println("Appended results to " + history.toAbsolutePath());
+        }
+    }
+
+    private Footprint measure(final String keyValuesFactory, final String domainSpecificValueFactory) {
+        DomainSpecificValueFactory valueFactory = SyntheticStore.domainSpecificValueFactory(domainSpecificValueFactory);
+        SyntheticStore store = new SyntheticStore()
+            .keyCount(keyCount)
+            .overridesPerKey(overridesPerKey)
+            .skewedOverrides(skewedOverrides)
+            .domainCount(domainCount)
+            .domainCardinality(domainCardinality)
+            .wildcardRatio(wildcardRatio)
+            .changeSetRatio(changeSetRatio)
+            .keyValuesFactory(SyntheticStore.keyValuesFactory(keyValuesFactory))
+            .domainSpecificValueFactory(valueFactory);
+        RopertyImpl roperty = store.build();
+        warmUp(roperty, store);
+        long values = 0;
+        for (KeyValues keyValues : roperty.getKeyValues().values()) {
+            values += keyValues.getDomainSpecificValues().size();
+        }
+        long retainedBytes = GraphLayout.parseInstance(roperty).totalSize();
+        long offHeapBytes = valueFactory instanceof DomainSpecificValueFactoryWithOffHeapValues
+            ? ((DomainSpecificValueFactoryWithOffHeapValues)valueFactory).getAllocatedBytes() : 0;
+        return new Footprint(values, retainedBytes, offHeapBytes);
+    }
+
+    /**
+     * Looks up every key once, so lazily created structures like matchers are part of the measured footprint.
+     */
+    private void warmUp(final RopertyImpl roperty, final SyntheticStore store) {
+        DomainResolver resolver = store.resolver(new Random(42), true);
+        for (int i = 0; i < keyCount; i++) {
+            roperty.get(SyntheticStore.key(i), resolver);
+        }
+    }
+
+    private void appendToHistory(final List<String> rows) throws IOException {
+        boolean writeHeader = !Files.exists(history) || Files.size(history) == 0;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(history, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (writeHeader) {
+                writer.println(CSV_HEADER);
+            }
+            rows.forEach(writer::println);
+        }
+    }
+
+    private final class Footprint {
+        private final long values;
+        private final long retainedBytes;
+        private final long offHeapBytes;
+
+        Footprint(final long values, final long retainedBytes, final long offHeapBytes) {
+            this.values = values;
+            this.retainedBytes = retainedBytes;
+            this.offHeapBytes = offHeapBytes;
+        }
+
+        double bytesPerKey() {
+            return keyCount == 0 ? 0 : (double)(retainedBytes + offHeapBytes) / keyCount;
+        }
+
+        double bytesPerValue() {
+            return values == 0 ? 0 : (double)(retainedBytes + offHeapBytes) / values;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parship.roperty.DomainResolver;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.RopertyImpl;
+
+
+/**
+ * Measures Roperty.get for stores with different numbers of overrides per key, pattern shapes, domain counts,
+ * active changeSets and value factories, single threaded and under contention with a concurrent writer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetBenchmark {
+
+    private static final int RESOLVER_COUNT = 64;
+
+    @Param({"0", "10", "1000"})
+    public int overridesPerKey;
+
+    /** "exact" patterns name a value for every domain, "wildcard" patterns use "*" for half of the domains. */
+    @Param({"exact", "wildcard"})
+    public String patterns;
+
+    @Param({"1", "4", "8"})
+    public int domains;
+
+    @Param({"false", "true"})
+    public boolean activeChangeSets;
+
+    @Param({"default", "interning", "deduplication"})
+    public String valueFactory;
+
+    @Param({"default"})
+    public String keyValuesFactory;
+
+    @Param({"100"})
+    public int keyCount;
+
+    private RopertyImpl roperty;
+    private String[] keys;
+    private KeyValues[] keyValues;
+    private DomainResolver[] resolvers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticStore store = new SyntheticStore()
+            .keyCount(keyCount)
+            .overridesPerKey(overridesPerKey)
+            .domainCount(domains)
+            .wildcardRatio("wildcard".equals(patterns) ? 0.5 : 0.0)
+            .changeSetRatio(activeChangeSets ? 0.2 : 0.0)
+            .keyValuesFactory(SyntheticStore.keyValuesFactory(keyValuesFactory))
+            .domainSpecificValueFactory(SyntheticStore.domainSpecificValueFactory(valueFactory));
+        roperty = store.build();
+        keys = new String[keyCount];
+        keyValues = new KeyValues[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = SyntheticStore.key(i);
+            keyValues[i] = roperty.getKeyValues(keys[i]);
+        }
+        Random random = new Random(42);
+        resolvers = new DomainResolver[RESOLVER_COUNT];
+        for (int i = 0; i < RESOLVER_COUNT; i++) {
+            resolvers[i] = store.resolver(random, activeChangeSets);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & Integer.MAX_VALUE;
+        }
+    }
+
+    @Benchmark
+    public Object ropertyGet(final Cursor cursor) {
+        int i = cursor.next();
+        return roperty.get(keys[i % keys.length], resolvers[i % RESOLVER_COUNT]);
+    }
+
+    @Benchmark
+    public Object keyValuesGet(final Cursor cursor) {
+        int i = cursor.next();
+        return keyValues[i % keyValues.length].get(roperty.getDomainSchema(), null, resolvers[i % RESOLVER_COUNT]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object contendedGet(final Cursor cursor) {
+        return ropertyGet(cursor);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Object readWhileWriting(final Cursor cursor) {
+        return ropertyGet(cursor);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writeWhileReading(final Cursor cursor) {
+        int i = cursor.next();
+        roperty.set(keys[i % keys.length], "changed" + (i & 7), null, "v" + (i & 7));
+    }
+}
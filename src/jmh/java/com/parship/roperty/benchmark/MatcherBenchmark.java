@@ -0,0 +1,90 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parship.roperty.AbstractDomainSpecificValueFactory;
+import com.parship.roperty.DomainSymbolTable;
+import com.parship.roperty.Matcher;
+import com.parship.roperty.OrderedDomainPattern;
+
+
+/**
+ * Compares matching a single pattern against a domain string with the pattern's Matcher
+ * and against resolved domain symbols with the DomainSymbolTable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatcherBenchmark {
+
+    @Param({"exact", "wildcard"})
+    public String patterns;
+
+    @Param({"1", "4", "8"})
+    public int domains;
+
+    private Matcher matcher;
+    private String domainStr;
+    private int[] encodedPattern;
+    private int[] domainSymbols;
+
+    @Setup
+    public void setUp() {
+        String[] pattern = new String[domains];
+        String[] domainValues = new String[domains];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < domains; i++) {
+            domainValues[i] = "v" + i;
+            pattern[i] = "wildcard".equals(patterns) && i % 2 == 1 ? "*" : domainValues[i];
+            builder.append(domainValues[i]).append('|');
+        }
+        OrderedDomainPattern orderedDomainPattern = AbstractDomainSpecificValueFactory.calculateOrderedDomainPattern(pattern);
+        matcher = orderedDomainPattern.getMatcher();
+        domainStr = builder.toString();
+        DomainSymbolTable domainSymbolTable = new DomainSymbolTable();
+        encodedPattern = domainSymbolTable.encode(orderedDomainPattern);
+        domainSymbols = domainSymbolTable.lookup(domainValues);
+    }
+
+    @Benchmark
+    public boolean matcher() {
+        return matcher.matches(domainStr);
+    }
+
+    @Benchmark
+    public boolean symbols() {
+        return DomainSymbolTable.matches(encodedPattern, domainSymbols);
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty.benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import com.parship.roperty.CopyOnWriteKeyValuesFactory;
+import com.parship.roperty.DefaultDomainSpecificValueFactory;
+import com.parship.roperty.DefaultKeyValuesFactory;
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.DomainSpecificValueFactoryWithCompactText;
+import com.parship.roperty.DomainSpecificValueFactoryWithDeduplication;
+import com.parship.roperty.DomainSpecificValueFactoryWithOffHeapValues;
+import com.parship.roperty.DomainSpecificValueFactoryWithStringInterning;
+import com.parship.roperty.KeyValuesFactory;
+import com.parship.roperty.MapBackedDomainResolver;
+import com.parship.roperty.RopertyImpl;
+
+
+/**
+ * Generates reproducible synthetic Roperty stores for benchmarks.
+ * Domains are named "domain0" to "domainN", their values "v0" to "vM".
+ */
+public class SyntheticStore {
+
+    private static final int MAX_PATTERN_ATTEMPTS = 100;
+
+    private int keyCount = 1000;
+    private int overridesPerKey = 10;
+    private boolean skewedOverrides;
+    private int domainCount = 4;
+    private int domainCardinality = 32;
+    private double wildcardRatio;
+    private double changeSetRatio;
+    private int valueLength = 16;
+    private long seed = 4711;
+    private KeyValuesFactory keyValuesFactory = new DefaultKeyValuesFactory();
+    private DomainSpecificValueFactory domainSpecificValueFactory = new DefaultDomainSpecificValueFactory();
+    private long valueCount;
+
+    public SyntheticStore keyCount(final int keyCount) {
+        this.keyCount = keyCount;
+        return this;
+    }
+
+    /**
+     * @param overridesPerKey the number of domain specific values per key in addition to the default value.
+     * Every override of a key has a distinct pattern and changeSet, so the number is clamped when the domains
+     * offer fewer distinct patterns; see {@link #getValueCount()}
+     */
+    public SyntheticStore overridesPerKey(final int overridesPerKey) {
+        this.overridesPerKey = overridesPerKey;
+        return this;
+    }
+
+    /**
+     * @param skewedOverrides when true, the number of overrides follows a power law: most keys have no overrides,
+     * few keys have up to twice overridesPerKey
+     */
+    public SyntheticStore skewedOverrides(final boolean skewedOverrides) {
+        this.skewedOverrides = skewedOverrides;
+        return this;
+    }
+
+    public SyntheticStore domainCount(final int domainCount) {
+        this.domainCount = domainCount;
+        return this;
+    }
+
+    public SyntheticStore domainCardinality(final int domainCardinality) {
+        this.domainCardinality = domainCardinality;
+        return this;
+    }
+
+    /**
+     * @param wildcardRatio probability of a wildcard for every domain of an override pattern
+     */
+    public SyntheticStore wildcardRatio(final double wildcardRatio) {
+        this.wildcardRatio = wildcardRatio;
+        return this;
+    }
+
+    /**
+     * @param changeSetRatio probability of an override to belong to one of the changeSets "changeSet0" to "changeSet3"
+     */
+    public SyntheticStore changeSetRatio(final double changeSetRatio) {
+        this.changeSetRatio = changeSetRatio;
+        return this;
+    }
+
+    public SyntheticStore valueLength(final int valueLength) {
+        this.valueLength = valueLength;
+        return this;
+    }
+
+    public SyntheticStore seed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SyntheticStore keyValuesFactory(final KeyValuesFactory keyValuesFactory) {
+        this.keyValuesFactory = keyValuesFactory;
+        return this;
+    }
+
+    public SyntheticStore domainSpecificValueFactory(final DomainSpecificValueFactory domainSpecificValueFactory) {
+        this.domainSpecificValueFactory = domainSpecificValueFactory;
+        return this;
+    }
+
+    public static KeyValuesFactory keyValuesFactory(final String name) {
+        switch (name) {
+            case "default":
+                return new DefaultKeyValuesFactory();
+            case "copyOnWrite":
+                return new CopyOnWriteKeyValuesFactory();
+            default:
+                throw new IllegalArgumentException("Unknown KeyValuesFactory: " + name);
+        }
+    }
+
+    public static DomainSpecificValueFactory domainSpecificValueFactory(final String name) {
+        switch (name) {
+            case "default":
+                return new DefaultDomainSpecificValueFactory();
+            case "interning":
+                return new DomainSpecificValueFactoryWithStringInterning();
+            case "deduplication":
+                return new DomainSpecificValueFactoryWithDeduplication();
+            case "compactText":
+                return new DomainSpecificValueFactoryWithCompactText();
+            case "offHeap":
+                return new DomainSpecificValueFactoryWithOffHeapValues();
+            default:
+                throw new IllegalArgumentException("Unknown DomainSpecificValueFactory: " + name);
+        }
+    }
+
+    public static String key(final int index) {
+        return "com.parship.benchmark.key" + index;
+    }
+
+    public String[] domains() {
+        String[] domains = new String[domainCount];
+        for (int i = 0; i < domainCount; i++) {
+            domains[i] = "domain" + i;
+        }
+        return domains;
+    }
+
+    public RopertyImpl build() {
+        RopertyImpl roperty = new RopertyImpl(domains());
+        roperty.setKeyValuesFactory(keyValuesFactory);
+        roperty.setDomainSpecificValueFactory(domainSpecificValueFactory);
+        Random random = new Random(seed);
+        valueCount = 0;
+        Set<String> overridden = new HashSet<>();
+        for (int key = 0; key < keyCount; key++) {
+            roperty.set(key(key), value(random), "description of key " + key);
+            valueCount++;
+            overridden.clear();
+            int overrides = skewedOverrides ? skewedOverrides(random) : overridesPerKey;
+            for (int i = 0; i < overrides; i++) {
+                String changeSet = random.nextDouble() < changeSetRatio ? "changeSet" + random.nextInt(4) : "";
+                String[] pattern = distinctPattern(random, changeSet, overridden);
+                if (pattern == null) {
+                    break;
+                }
+                if (changeSet.isEmpty()) {
+                    roperty.set(key(key), value(random), null, pattern);
+                } else {
+                    roperty.setWithChangeSet(key(key), value(random), null, changeSet, pattern);
+                }
+                valueCount++;
+            }
+        }
+        return roperty;
+    }
+
+    /**
+     * @return the number of values, including default values, created by the last call of {@link #build()}.
+     * It is lower than keyCount * (1 + overridesPerKey) when the domains do not offer enough distinct patterns.
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    private int skewedOverrides(final Random random) {
+        double x = random.nextDouble();
+        return (int)(2 * overridesPerKey * x * x * x * x);
+    }
+
+    /**
+     * @return a pattern not yet used for the key with the given changeSet, or null if none was found
+     */
+    private String[] distinctPattern(final Random random, final String changeSet, final Set<String> overridden) {
+        for (int attempt = 0; attempt < MAX_PATTERN_ATTEMPTS; attempt++) {
+            String[] pattern = pattern(random);
+            if (overridden.add(changeSet + '|' + String.join("|", pattern))) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    private String[] pattern(final Random random) {
+        String[] pattern = new String[1 + random.nextInt(domainCount)];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = random.nextDouble() < wildcardRatio ? "*" : "v" + random.nextInt(domainCardinality);
+        }
+        return pattern;
+    }
+
+    private String value(final Random random) {
+        char[] value = new char[valueLength];
+        for (int i = 0; i < valueLength; i++) {
+            value[i] = (char)('a' + random.nextInt(8));
+        }
+        return new String(value);
+    }
+
+    /**
+     * @return a resolver with random values for all domains, activating the changeSet "changeSet0" if requested
+     */
+    public MapBackedDomainResolver resolver(final Random random, final boolean activeChangeSets) {
+        MapBackedDomainResolver resolver = new MapBackedDomainResolver();
+        for (String domain : domains()) {
+            resolver.set(domain, "v" + random.nextInt(domainCardinality));
+        }
+        if (activeChangeSets) {
+            resolver.addActiveChangeSets("changeSet0");
+        }
+        return resolver;
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticStore{keys=" + keyCount + ", overridesPerKey=" + overridesPerKey + (skewedOverrides ? " (skewed)" : "")
+            + ", domains=" + domainCount + ", domainCardinality=" + domainCardinality + ", wildcardRatio=" + wildcardRatio
+            + ", changeSetRatio=" + changeSetRatio + ", values=" + valueCount + ", keyValuesFactory=" + keyValuesFactory.getClass().getSimpleName()
+            + ", domainSpecificValueFactory=" + domainSpecificValueFactory.getClass().getSimpleName() + '}';
+    }
+}
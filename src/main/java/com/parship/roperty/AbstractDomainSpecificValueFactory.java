@@ -6,17 +6,44 @@ package com.parship.roperty;
  * Time: 11:43
  */
 public abstract class AbstractDomainSpecificValueFactory {
+
+	/**
+	 * The ordering has one bit per domain in a long, bit 0 is set for all patterns.
+	 */
+	public static final int MAX_DOMAINS = 62;
+
+	private final DomainSymbolTable domainSymbolTable = new DomainSymbolTable();
+
+	public DomainSymbolTable getDomainSymbolTable() {
+		return domainSymbolTable;
+	}
+
+	/**
+	 * Creates a DomainSpecificValue with its pattern encoded by the DomainSymbolTable of this factory.
+	 */
+	protected DomainSpecificValue createDomainSpecificValue(final OrderedDomainPattern pattern, final Object value, final String changeSet) {
+		DomainSpecificValue domainSpecificValue = new DomainSpecificValue(pattern, value, changeSet);
+		domainSpecificValue.setDomainSymbols(domainSymbolTable, domainSymbolTable.encode(pattern));
+		return domainSpecificValue;
+	}
+
+	/**
+	 * @return the pooled OrderedDomainPattern for the given domain values
+	 * @see DomainPatternPool
+	 */
 	public static OrderedDomainPattern calculateOrderedDomainPattern(final String[] domainValues) {
+		if (domainValues.length > MAX_DOMAINS) {
+			throw new IllegalArgumentException("At most " + MAX_DOMAINS + " domains are supported, but got: " + domainValues.length);
+		}
 		StringBuilder builder = new StringBuilder(domainValues.length * 8);
-		int order = 1;
-		int i = 0;
-		for (String domainValue : domainValues) {
-			i++;
+		long order = 1L;
+		for (int i = 0; i < domainValues.length; i++) {
+			String domainValue = domainValues[i];
 			if (!"*".equals(domainValue)) {
-				order = order | (int)Math.pow(2, i);
+				order |= 1L << (i + 1);
 			}
 			builder.append(domainValue).append('|');
 		}
-		return new OrderedDomainPattern(builder.toString(), order);
+		return DomainPatternPool.getInstance().get(builder.toString(), order);
 	}
 }
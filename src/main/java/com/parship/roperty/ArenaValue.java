@@ -0,0 +1,106 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * On-heap index entry of a text stored as UTF-8 in a {@link ValueArena}. Decoded texts are kept in a small cache
+ * shared by all values of the same arena, so hot texts are not decoded on every access.
+ */
+final class ArenaValue implements EncodedValue {
+
+    private final ByteBuffer chunk;
+    private final int offset;
+    private final int length;
+    private final int generation;
+    private final int hash;
+    private final DecodedTextCache cache;
+
+    /**
+     * @param hash the hash of the stored bytes as computed by {@link java.util.Arrays#hashCode(byte[])}
+     */
+    ArenaValue(final ByteBuffer chunk, final int offset, final int length, final int generation, final int hash, final DecodedTextCache cache) {
+        this.chunk = chunk;
+        this.offset = offset;
+        this.length = length;
+        this.generation = generation;
+        this.hash = hash;
+        this.cache = cache;
+    }
+
+    @Override
+    public String decode() {
+        String text = cache.get(this);
+        if (text == null) {
+            text = new String(getBytes(), StandardCharsets.UTF_8);
+            cache.put(this, text);
+        }
+        return text;
+    }
+
+    byte[] getBytes() {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = chunk.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the generation of the arena holding the bytes
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Compares the UTF-8 bytes without decoding them.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArenaValue that = (ArenaValue)o;
+        if (length != that.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(offset + i) != that.chunk.get(that.offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return decode();
+    }
+}
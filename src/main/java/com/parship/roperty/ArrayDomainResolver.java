@@ -0,0 +1,163 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * Immutable DomainResolver bound to a {@link DomainSchema}, which keeps the domain values in an array indexed by slot.
+ * The set of active changeSets is built once and returned without copying.
+ * Instances can be shared between threads; per request variations are derived with the copying
+ * {@link #with(String, String)} and {@link #withActiveChangeSets(String...)} methods.
+ * <p>
+ * Adding domains publishes a new schema, which starts with the domains of the older one. Resolvers built on an older
+ * schema are rebound to the newer one on first use and still resolve by slot, the added domains have no value.
+ * Only schemas with different domain order, e.g. of another Roperty, are resolved by domain name.
+ */
+public final class ArrayDomainResolver implements IndexedDomainResolver {
+
+    private final DomainSchema domainSchema;
+    private final String[] domainValues;
+    private final Set<String> activeChangeSets;
+    private volatile DomainSchema extendedSchema;
+
+    public ArrayDomainResolver(final DomainSchema domainSchema) {
+        this(domainSchema, new String[domainSchema.size()], Collections.emptySet());
+    }
+
+    public ArrayDomainResolver(final RopertyImpl roperty) {
+        this(roperty.getDomainSchema());
+    }
+
+    private ArrayDomainResolver(final DomainSchema domainSchema, final String[] domainValues, final Set<String> activeChangeSets) {
+        Objects.requireNonNull(domainSchema, "\"domainSchema\" must not be null");
+        this.domainSchema = domainSchema;
+        this.domainValues = domainValues;
+        this.activeChangeSets = activeChangeSets;
+    }
+
+    /**
+     * @return a copy of this resolver with the value of the domain changed
+     * @throws IllegalArgumentException if the domain is not part of the schema
+     */
+    public ArrayDomainResolver with(final String domain, final String domainValue) {
+        int slot = domainSchema.slotOf(domain);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Domain \"" + domain + "\" is not part of the schema " + domainSchema);
+        }
+        String[] changedValues = domainValues.clone();
+        changedValues[slot] = domainValue;
+        return new ArrayDomainResolver(domainSchema, changedValues, activeChangeSets);
+    }
+
+    /**
+     * @return a copy of this resolver with the changeSets additionally active
+     */
+    public ArrayDomainResolver withActiveChangeSets(final String... changeSets) {
+        Set<String> changedChangeSets = new HashSet<>(activeChangeSets);
+        changedChangeSets.addAll(Arrays.asList(changeSets));
+        return new ArrayDomainResolver(domainSchema, domainValues, Collections.unmodifiableSet(changedChangeSets));
+    }
+
+    @Override
+    public void resolve(final DomainSchema schema, final String[] values) {
+        if (isBoundTo(schema)) {
+            System.arraycopy(domainValues, 0, values, 0, domainValues.length);
+            Arrays.fill(values, domainValues.length, values.length, null);
+        } else {
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = getDomainValue(schema.getDomain(slot));
+            }
+        }
+    }
+
+    @Override
+    public String getDomainValue(final DomainSchema schema, final int slot) {
+        if (isBoundTo(schema)) {
+            return slot < domainValues.length ? domainValues[slot] : null;
+        }
+        return getDomainValue(schema.getDomain(slot));
+    }
+
+    /**
+     * @return true for the own schema and schemas starting with its domains, which are remembered after the first check
+     */
+    private boolean isBoundTo(final DomainSchema schema) {
+        if (schema == domainSchema || schema == extendedSchema) {
+            return true;
+        }
+        if (schema.size() < domainSchema.size()) {
+            return false;
+        }
+        for (int slot = 0; slot < domainSchema.size(); slot++) {
+            if (!domainSchema.getDomain(slot).equals(schema.getDomain(slot))) {
+                return false;
+            }
+        }
+        extendedSchema = schema;
+        return true;
+    }
+
+    @Override
+    public String getDomainValue(final String domain) {
+        int slot = domainSchema.slotOf(domain);
+        return slot < 0 ? null : domainValues[slot];
+    }
+
+    @Override
+    public Collection<String> getActiveChangeSets() {
+        return activeChangeSets;
+    }
+
+    public DomainSchema getDomainSchema() {
+        return domainSchema;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArrayDomainResolver that = (ArrayDomainResolver)o;
+        return domainSchema.getDomains().equals(that.domainSchema.getDomains())
+            && Arrays.equals(domainValues, that.domainValues)
+            && activeChangeSets.equals(that.activeChangeSets);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(domainValues) + activeChangeSets.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ArrayDomainResolver{");
+        for (int slot = 0; slot < domainValues.length; slot++) {
+            if (slot > 0) {
+                builder.append(", ");
+            }
+            builder.append(domainSchema.getDomain(slot)).append('=').append(domainValues[slot]);
+        }
+        return builder.append(", activeChangeSets=").append(activeChangeSets).append('}').toString();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Decorator for expensive DomainResolvers, which memoizes the domain values and active changeSets of the wrapped
+ * resolver for its lifetime. Meant to wrap a resolver per request, so every domain value is computed at most once,
+ * no matter how many keys are read or whether debug logging asks for the values again.
+ * <p>
+ * {@link #getVectorHash(DomainSchema)} gives a hash of all resolved values and active changeSets, which is stable
+ * across JVMs and can be used to key downstream caches of resolved properties.
+ */
+public class CachingDomainResolver implements IndexedDomainResolver {
+
+    private static final String NO_VALUE = new String("");
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final DomainResolver delegate;
+    private final Map<String, String> domainValues = new ConcurrentHashMap<>();
+    private volatile Collection<String> activeChangeSets;
+    private volatile ResolvedVector resolvedVector;
+
+    public CachingDomainResolver(final DomainResolver delegate) {
+        Objects.requireNonNull(delegate, "\"delegate\" must not be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getDomainValue(final String domain) {
+        String domainValue = domainValues.get(domain);
+        if (domainValue == null) {
+            domainValue = delegate.getDomainValue(domain);
+            domainValues.putIfAbsent(domain, domainValue == null ? NO_VALUE : domainValue);
+            return domainValue;
+        }
+        return domainValue == NO_VALUE ? null : domainValue;
+    }
+
+    @Override
+    public Collection<String> getActiveChangeSets() {
+        Collection<String> changeSets = activeChangeSets;
+        if (changeSets == null) {
+            changeSets = delegate.getActiveChangeSets();
+            activeChangeSets = changeSets;
+        }
+        return changeSets;
+    }
+
+    @Override
+    public void resolve(final DomainSchema schema, final String[] values) {
+        String[] resolved = resolvedVector(schema).values;
+        System.arraycopy(resolved, 0, values, 0, resolved.length);
+    }
+
+    /**
+     * @return a hash over the values of all domains of the schema and the active changeSets, which only depends
+     * on the resolved strings and is therefore stable across JVMs
+     */
+    public long getVectorHash(final DomainSchema schema) {
+        return resolvedVector(schema).hash;
+    }
+
+    private ResolvedVector resolvedVector(final DomainSchema schema) {
+        ResolvedVector vector = resolvedVector;
+        if (vector == null || vector.schema != schema) {
+            String[] values = new String[schema.size()];
+            if (delegate instanceof IndexedDomainResolver) {
+                ((IndexedDomainResolver)delegate).resolve(schema, values);
+                for (int slot = 0; slot < values.length; slot++) {
+                    domainValues.putIfAbsent(schema.getDomain(slot), values[slot] == null ? NO_VALUE : values[slot]);
+                }
+            } else {
+                for (int slot = 0; slot < values.length; slot++) {
+                    values[slot] = getDomainValue(schema.getDomain(slot));
+                }
+            }
+            vector = new ResolvedVector(schema, values, hash(values, getActiveChangeSets()));
+            resolvedVector = vector;
+        }
+        return vector;
+    }
+
+    private static long hash(final String[] values, final Collection<String> changeSets) {
+        long hash = FNV_OFFSET;
+        for (String value : values) {
+            hash = hash(hash, value == null ? "" : value);
+            hash = (hash ^ '|') * FNV_PRIME;
+        }
+        long changeSetsHash = 0;
+        for (String changeSet : changeSets) {
+            changeSetsHash += hash(FNV_OFFSET, changeSet);
+        }
+        return (hash ^ changeSetsHash) * FNV_PRIME;
+    }
+
+    private static long hash(long hash, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public DomainResolver getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDomainResolver{delegate=" + delegate + '}';
+    }
+
+    private static final class ResolvedVector {
+        private final DomainSchema schema;
+        private final String[] values;
+        private final long hash;
+
+        ResolvedVector(final DomainSchema schema, final String[] values, final long hash) {
+            this.schema = schema;
+            this.values = values;
+            this.hash = hash;
+        }
+    }
+}
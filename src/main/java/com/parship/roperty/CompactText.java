@@ -0,0 +1,130 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * A text value stored as UTF-8 bytes, which are deflate-compressed when the text is large enough.
+ * Decoded texts are kept in a small cache shared by all texts of the same factory.
+ */
+final class CompactText implements EncodedValue {
+
+    private final byte[] bytes;
+    private final int decodedLength;
+    private final boolean compressed;
+    private final int hash;
+    private final DecodedTextCache cache;
+
+    private CompactText(final byte[] bytes, final int decodedLength, final boolean compressed, final DecodedTextCache cache) {
+        this.bytes = bytes;
+        this.decodedLength = decodedLength;
+        this.compressed = compressed;
+        this.hash = Arrays.hashCode(bytes);
+        this.cache = cache;
+    }
+
+    /**
+     * @param compressionThreshold minimum number of UTF-8 bytes, from which on the text is compressed
+     */
+    static CompactText encode(final String text, final int compressionThreshold, final DecodedTextCache cache) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= compressionThreshold) {
+            byte[] deflated = deflate(utf8);
+            if (deflated.length < utf8.length) {
+                return new CompactText(deflated, utf8.length, true, cache);
+            }
+        }
+        return new CompactText(utf8, utf8.length, false, cache);
+    }
+
+    @Override
+    public String decode() {
+        String text = cache.get(this);
+        if (text == null) {
+            text = new String(compressed ? inflate(bytes, decodedLength) : bytes, StandardCharsets.UTF_8);
+            cache.put(this, text);
+        }
+        return text;
+    }
+
+    int getStoredSize() {
+        return bytes.length;
+    }
+
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    private static byte[] deflate(final byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(final byte[] input, final int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            byte[] output = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                offset += inflater.inflate(output, offset, length - offset);
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed text is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactText that = (CompactText)o;
+        return hash == that.hash && compressed == that.compressed && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return decode();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+
+/**
+ * Read-only snapshot of all KeyValues compiled into a columnar layout. Instead of a graph of KeyValues,
+ * DomainSpecificValue and Matcher objects, all values are kept in a few flat arrays: a key index, the range of values
+ * per key, the concatenated patterns encoded as domain symbols, and the changeSets and values.
+ * Patterns with partial wildcards like "d*" can not be encoded as symbols and are matched by their Matcher instead.
+ * The values of a key are stored in resolution order, so a lookup scans a contiguous range and returns the first
+ * matching value, with the same result as {@link KeyValues#get(Iterable, Object, DomainResolver)}.
+ * <p>
+ * Later changes to the compiled KeyValues are not reflected, and keys not contained in the snapshot are not loaded
+ * from persistence.
+ */
+public final class CompiledValuesStore {
+
+    private static final String DOMAIN_SEPARATOR = "|";
+
+    private final String[] keys;
+    private final String[] descriptions;
+    private final KeyIndex keyIndex;
+    private final int[] valueStart;
+    private final int[] patternStart;
+    private final int[] patternSymbols;
+    private final String[] changeSets;
+    private final Object[] values;
+    private final Matcher[] matchers;
+    private final DomainSymbolTable domainSymbolTable;
+
+    private CompiledValuesStore(final Map<String, KeyValues> keyValuesMap, final Function<String[], KeyIndex> keyIndexFactory) {
+        domainSymbolTable = new DomainSymbolTable();
+        int keyCount = keyValuesMap.size();
+        keys = new String[keyCount];
+        descriptions = new String[keyCount];
+        valueStart = new int[keyCount + 1];
+        List<int[]> encodedPatterns = new ArrayList<>();
+        List<String> changeSetColumn = new ArrayList<>();
+        List<Object> valueColumn = new ArrayList<>();
+        List<Matcher> matcherColumn = new ArrayList<>();
+        boolean needsMatchers = false;
+        int symbolCount = 0;
+        int position = 0;
+        for (Map.Entry<String, KeyValues> entry : keyValuesMap.entrySet()) {
+            keys[position] = entry.getKey();
+            descriptions[position] = entry.getValue().getDescription();
+            valueStart[position] = valueColumn.size();
+            for (DomainSpecificValue domainSpecificValue : entry.getValue().getDomainSpecificValues()) {
+                int[] encodedPattern = domainSymbolTable.encode(domainSpecificValue.getOrderedDomainPattern());
+                if (encodedPattern == null) {
+                    matcherColumn.add(domainSpecificValue.getOrderedDomainPattern().getMatcher());
+                    needsMatchers = true;
+                    encodedPattern = new int[0];
+                } else {
+                    matcherColumn.add(null);
+                }
+                encodedPatterns.add(encodedPattern);
+                symbolCount += encodedPattern.length;
+                changeSetColumn.add(domainSpecificValue.getChangeSet());
+                valueColumn.add(domainSpecificValue.getStoredValue());
+            }
+            position++;
+        }
+        valueStart[keyCount] = valueColumn.size();
+
+        patternStart = new int[encodedPatterns.size() + 1];
+        patternSymbols = new int[symbolCount];
+        int symbolPosition = 0;
+        for (int i = 0; i < encodedPatterns.size(); i++) {
+            int[] encodedPattern = encodedPatterns.get(i);
+            patternStart[i] = symbolPosition;
+            System.arraycopy(encodedPattern, 0, patternSymbols, symbolPosition, encodedPattern.length);
+            symbolPosition += encodedPattern.length;
+        }
+        patternStart[encodedPatterns.size()] = symbolPosition;
+        changeSets = changeSetColumn.toArray(new String[changeSetColumn.size()]);
+        values = valueColumn.toArray();
+        matchers = needsMatchers ? matcherColumn.toArray(new Matcher[matcherColumn.size()]) : null;
+        keyIndex = keyIndexFactory.apply(keys);
+    }
+
+    /**
+     * Compiles a snapshot of the given KeyValues. The map must not be changed during compilation.
+     */
+    public static CompiledValuesStore compile(final Map<String, KeyValues> keyValuesMap) {
+        return compile(keyValuesMap, OpenAddressingKeyIndex::new);
+    }
+
+    static CompiledValuesStore compile(final Map<String, KeyValues> keyValuesMap, final Function<String[], KeyIndex> keyIndexFactory) {
+        Objects.requireNonNull(keyValuesMap, "\"keyValuesMap\" must not be null");
+        return new CompiledValuesStore(keyValuesMap, keyIndexFactory);
+    }
+
+    /**
+     * Resolves the value for a key with the same semantics as {@link KeyValues#get(Iterable, Object, DomainResolver)}.
+     *
+     * @return the best matching value or the defaultValue, when the key is not contained or no value matches
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(final String key, final Iterable<String> domains, final T defaultValue, final DomainResolver resolver) {
+        Objects.requireNonNull(domains, "\"domains\" must not be null");
+        Iterator<String> domainsIterator = domains.iterator();
+        if (domainsIterator.hasNext() && resolver == null) {
+            throw new IllegalArgumentException("If a domain is specified, the domain resolver must not be null");
+        }
+        int keyPosition = keyIndex.indexOf(key);
+        if (keyPosition < 0) {
+            return defaultValue;
+        }
+        String[] domainValues = resolveDomainValues(domainsIterator, resolver);
+        int[] domainSymbols = domainSymbolTable.lookup(domainValues);
+        String domainStr = null;
+        Collection<String> activeChangeSets = null;
+        for (int i = valueStart[keyPosition], end = valueStart[keyPosition + 1]; i < end; i++) {
+            String changeSet = changeSets[i];
+            if (changeSet != null && resolver != null) {
+                if (activeChangeSets == null) {
+                    activeChangeSets = resolver.getActiveChangeSets();
+                }
+                if (!activeChangeSets.contains(changeSet)) {
+                    continue;
+                }
+            }
+            boolean matches;
+            if (matchers != null && matchers[i] != null) {
+                if (domainStr == null) {
+                    domainStr = buildDomain(domainValues);
+                }
+                matches = matchers[i].matches(domainStr);
+            } else {
+                matches = matches(i, domainSymbols);
+            }
+            if (matches) {
+                Object value = values[i];
+                return (T)(value instanceof EncodedValue ? ((EncodedValue)value).decode() : value);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static String[] resolveDomainValues(final Iterator<String> domainsIterator, final DomainResolver resolver) {
+        List<String> domainValues = new ArrayList<>();
+        while (domainsIterator.hasNext()) {
+            String domainValue = resolver.getDomainValue(domainsIterator.next());
+            if (domainValue == null) {
+                domainValue = "";
+            }
+            if (domainValue.contains(DOMAIN_SEPARATOR)) {
+                throw new IllegalArgumentException("domainValues may not contain '" + DOMAIN_SEPARATOR + '\'');
+            }
+            domainValues.add(domainValue);
+        }
+        return domainValues.toArray(new String[domainValues.size()]);
+    }
+
+    private static String buildDomain(final String[] domainValues) {
+        StringBuilder builder = new StringBuilder();
+        for (String domainValue : domainValues) {
+            builder.append(domainValue).append(DOMAIN_SEPARATOR);
+        }
+        return builder.toString();
+    }
+
+    private boolean matches(final int valuePosition, final int[] domainSymbols) {
+        int start = patternStart[valuePosition];
+        int length = patternStart[valuePosition + 1] - start;
+        if (length > domainSymbols.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int symbol = patternSymbols[start + i];
+            if (symbol != DomainSymbolTable.WILDCARD && symbol != domainSymbols[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsKey(final String key) {
+        return keyIndex.indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the description of the key or null, when the key is not contained
+     */
+    public String getDescription(final String key) {
+        int keyPosition = keyIndex.indexOf(key);
+        return keyPosition < 0 ? null : descriptions[keyPosition];
+    }
+
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    public int getValueCount() {
+        return values.length;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledValuesStore{keys=" + keys.length + ", values=" + values.length + ", symbols=" + domainSymbolTable.size() + '}';
+    }
+}
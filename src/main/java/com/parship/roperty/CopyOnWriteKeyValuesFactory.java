@@ -0,0 +1,30 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+/**
+ * Creates KeyValues, which keep their DomainSpecificValues in an immutable sorted array that is replaced on every change.
+ * Lookups iterate a contiguous array without locking, while changes copy the array. Use this factory when
+ * values are read much more often than they are changed, which is the common case for Roperty.
+ */
+public class CopyOnWriteKeyValuesFactory implements KeyValuesFactory {
+	@Override
+	public KeyValues create(final DomainSpecificValueFactory factory) {
+		return new KeyValues(factory, new SortedArrayDomainSpecificValueStorage());
+	}
+}
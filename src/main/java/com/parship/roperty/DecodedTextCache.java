@@ -0,0 +1,59 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Small direct-mapped cache of decoded texts. Each text can only be cached in the slot selected by its hash,
+ * so hot texts stay decoded while colliding texts simply replace each other. Reads and writes are lock free.
+ */
+final class DecodedTextCache {
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+
+    /**
+     * @param size number of cache slots, rounded up to the next power of two
+     */
+    DecodedTextCache(final int size) {
+        int slots = Integer.highestOneBit(Math.max(1, size - 1) << 1);
+        entries = new AtomicReferenceArray<>(slots);
+        mask = slots - 1;
+    }
+
+    String get(final EncodedValue text) {
+        Entry entry = entries.get(text.hashCode() & mask);
+        return entry != null && entry.text == text ? entry.decoded : null;
+    }
+
+    void put(final EncodedValue text, final String decoded) {
+        entries.lazySet(text.hashCode() & mask, new Entry(text, decoded));
+    }
+
+    private static final class Entry {
+        private final EncodedValue text;
+        private final String decoded;
+
+        Entry(final EncodedValue text, final String decoded) {
+            this.text = text;
+            this.decoded = decoded;
+        }
+    }
+}
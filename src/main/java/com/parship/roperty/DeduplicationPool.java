@@ -0,0 +1,183 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A bounded replacement for String.intern(), owned by a single value factory instead of the JVM.
+ * Pooled values are only weakly referenced, so values no longer used by any key can be garbage collected.
+ * When the pool holds maxSize values, further values are not pooled but returned as they are.
+ * The strategy decides, which values are pooled and how they are compared.
+ */
+public class DeduplicationPool {
+
+    private final ConcurrentMap<Object, PooledValue> values = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collectedValues = new ReferenceQueue<>();
+    private final DeduplicationStrategy strategy;
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public DeduplicationPool(final DeduplicationStrategy strategy, final int maxSize) {
+        Objects.requireNonNull(strategy, "\"strategy\" must not be null");
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("\"maxSize\" must not be negative, but was: " + maxSize);
+        }
+        this.strategy = strategy;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return a pooled value equivalent to the given value or the given value itself
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T deduplicate(final T value) {
+        if (value == null || !strategy.isDeduplicable(value)) {
+            return value;
+        }
+        expungeCollectedValues();
+        int hash = strategy.hash(value);
+        PooledValue pooled = values.get(new LookupKey(value, hash));
+        Object existing = pooled == null ? null : pooled.get();
+        if (existing != null) {
+            hits.increment();
+            return (T)existing;
+        }
+        if (values.size() >= maxSize) {
+            rejections.increment();
+            return value;
+        }
+        PooledValue newValue = new PooledValue(value, hash);
+        while (true) {
+            pooled = values.putIfAbsent(newValue, newValue);
+            if (pooled == null) {
+                misses.increment();
+                return value;
+            }
+            existing = pooled.get();
+            if (existing != null) {
+                hits.increment();
+                return (T)existing;
+            }
+            values.remove(pooled, pooled);
+        }
+    }
+
+    private void expungeCollectedValues() {
+        Object collected;
+        while ((collected = collectedValues.poll()) != null) {
+            values.remove(collected, collected);
+        }
+    }
+
+    public int size() {
+        expungeCollectedValues();
+        return values.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of values, which were not pooled, because the pool was full
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = getHits();
+        long requests = hitCount + getMisses() + getRejections();
+        return requests == 0 ? 0.0 : (double)hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "DeduplicationPool{size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHits() + ", misses=" + getMisses()
+            + ", rejections=" + getRejections() + ", hitRate=" + String.format("%.3f", getHitRate()) + '}';
+    }
+
+    private boolean equivalent(final Object value, final Object other) {
+        return value != null && other != null && strategy.equivalent(value, other);
+    }
+
+    private final class PooledValue extends WeakReference<Object> {
+        private final int hash;
+
+        PooledValue(final Object value, final int hash) {
+            super(value, collectedValues);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o instanceof PooledValue) {
+                PooledValue other = (PooledValue)o;
+                return hash == other.hash && equivalent(get(), other.get());
+            }
+            return false;
+        }
+    }
+
+    private final class LookupKey {
+        private final Object value;
+        private final int hash;
+
+        LookupKey(final Object value, final int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (o instanceof PooledValue) {
+                PooledValue other = (PooledValue)o;
+                return hash == other.hash && equivalent(value, other.get());
+            }
+            return false;
+        }
+    }
+}
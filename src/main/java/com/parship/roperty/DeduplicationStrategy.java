@@ -0,0 +1,55 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Decides which values a {@link DeduplicationPool} may share and when two values are interchangeable.
+ * Only immutable values may be deduplicated, since all keys holding an equivalent value will share the same instance.
+ */
+@FunctionalInterface
+public interface DeduplicationStrategy {
+
+    boolean isDeduplicable(Object value);
+
+    default boolean equivalent(final Object value, final Object other) {
+        return value.equals(other);
+    }
+
+    default int hash(final Object value) {
+        return value.hashCode();
+    }
+
+    /**
+     * Deduplicates Strings only, compared by equals.
+     */
+    static DeduplicationStrategy stringsOnly() {
+        return value -> value instanceof String;
+    }
+
+    /**
+     * Deduplicates values of exactly the given immutable types, compared by equals.
+     */
+    static DeduplicationStrategy immutableTypes(final Class<?>... types) {
+        List<Class<?>> deduplicableTypes = Arrays.asList(types.clone());
+        return value -> deduplicableTypes.contains(value.getClass());
+    }
+}
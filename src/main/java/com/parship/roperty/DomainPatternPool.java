@@ -0,0 +1,81 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Canonicalizing pool for OrderedDomainPatterns.
+ * Many keys share the same patterns like "de|DE|" or "*|*|google|", so each distinct pattern string is represented
+ * by exactly one OrderedDomainPattern with its Matcher, which is shared across all keys and factories.
+ * The number of distinct patterns is bounded by the combinations of domain values actually used, so pooled patterns
+ * are kept for the lifetime of the JVM.
+ */
+public class DomainPatternPool {
+
+    private static final DomainPatternPool instance = new DomainPatternPool();
+
+    private final Map<String, OrderedDomainPattern> patterns = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public static DomainPatternPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the pooled pattern for the given pattern string, which is created with the given order when not yet pooled
+     */
+    public OrderedDomainPattern get(final String domainPattern, final long order) {
+        OrderedDomainPattern pattern = patterns.get(domainPattern);
+        if (pattern != null) {
+            hits.increment();
+            return pattern;
+        }
+        return patterns.computeIfAbsent(domainPattern, p -> {
+            misses.increment();
+            return new OrderedDomainPattern(p, order);
+        });
+    }
+
+    public int size() {
+        return patterns.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public void clear() {
+        patterns.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "DomainPatternPool{size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + '}';
+    }
+}
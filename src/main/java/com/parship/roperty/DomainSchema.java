@@ -0,0 +1,140 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Immutable, ordered set of domains, which assigns every domain a slot index. Resolved domain values are kept in
+ * arrays indexed by slot, so lookups do not need to access values by domain name.
+ * Adding domains creates a new schema with an incremented version, so readers always see a consistent schema.
+ */
+public final class DomainSchema implements Iterable<String> {
+
+    public static final DomainSchema EMPTY = new DomainSchema(new String[0], 0);
+
+    private final String[] domains;
+    private final List<String> domainList;
+    private final Map<String, Integer> slots;
+    private final int version;
+
+    private DomainSchema(final String[] domains, final int version) {
+        this.domains = domains;
+        this.domainList = Collections.unmodifiableList(Arrays.asList(domains));
+        this.version = version;
+        Map<String, Integer> slotMap = new HashMap<>();
+        for (int slot = domains.length - 1; slot >= 0; slot--) {
+            slotMap.put(domains[slot], slot);
+        }
+        this.slots = slotMap;
+    }
+
+    public static DomainSchema of(final String... domains) {
+        return EMPTY.withDomains(domains);
+    }
+
+    public static DomainSchema of(final List<String> domains) {
+        Objects.requireNonNull(domains, "\"domains\" must not be null");
+        return of(domains.toArray(new String[domains.size()]));
+    }
+
+    /**
+     * @return a new schema version with the given domains appended, this schema is not changed
+     */
+    public DomainSchema withDomains(final String... additionalDomains) {
+        Objects.requireNonNull(additionalDomains, "\"domains\" must not be null");
+        for (String domain : additionalDomains) {
+            Ensure.notEmpty(domain, "domain");
+        }
+        String[] extendedDomains = Arrays.copyOf(domains, domains.length + additionalDomains.length);
+        System.arraycopy(additionalDomains, 0, extendedDomains, domains.length, additionalDomains.length);
+        return new DomainSchema(extendedDomains, version + 1);
+    }
+
+    /**
+     * @return the slot of the domain or -1, when the domain is not part of this schema
+     */
+    public int slotOf(final String domain) {
+        Integer slot = slots.get(domain);
+        return slot == null ? -1 : slot;
+    }
+
+    public String getDomain(final int slot) {
+        return domains[slot];
+    }
+
+    public int size() {
+        return domains.length;
+    }
+
+    /**
+     * @return incremented on every change of the domains, starting with 0 for the empty schema
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public List<String> getDomains() {
+        return domainList;
+    }
+
+    /**
+     * Resolves the values of all domains by slot. Domains without value are resolved to an empty string.
+     *
+     * @throws IllegalArgumentException if a domain value contains the domain separator '|'
+     */
+    public String[] resolve(final DomainResolver resolver) {
+        String[] domainValues = new String[domains.length];
+        if (domains.length == 0) {
+            return domainValues;
+        }
+        if (resolver instanceof IndexedDomainResolver) {
+            ((IndexedDomainResolver)resolver).resolve(this, domainValues);
+        } else {
+            for (int slot = 0; slot < domains.length; slot++) {
+                domainValues[slot] = resolver.getDomainValue(domains[slot]);
+            }
+        }
+        for (int slot = 0; slot < domainValues.length; slot++) {
+            String domainValue = domainValues[slot];
+            if (domainValue == null) {
+                domainValues[slot] = "";
+            } else if (domainValue.indexOf('|') >= 0) {
+                throw new IllegalArgumentException("domainValues may not contain '|'");
+            }
+        }
+        return domainValues;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return domainList.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return domainList.toString();
+    }
+}
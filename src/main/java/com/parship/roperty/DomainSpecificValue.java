@@ -32,11 +32,11 @@ import java.util.Objects;
  * @since 2013-04-09 18:20
  */
 public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
-	private final String patternStr;
-	private final int ordering;
-	private Object value;
-	private final Matcher matcher;
+	private final OrderedDomainPattern pattern;
+	private volatile Object value;
+	private volatile long version;
     private String changeSet;
+	private volatile EncodedPattern encodedPattern;
 
 	public DomainSpecificValue(final OrderedDomainPattern orderedDomainPattern, Object value, String changeSet) {
 		this(orderedDomainPattern, value);
@@ -44,14 +44,8 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 	}
 
 	public DomainSpecificValue(final OrderedDomainPattern orderedDomainPattern, Object value) {
-        Objects.requireNonNull(orderedDomainPattern.getDomainPattern(), "\"domainPattern\" must not be null");
-        this.patternStr = orderedDomainPattern.getDomainPattern();
-		if (patternStr.contains("*")) {
-			matcher = new RegexMatcher(patternStr.replaceAll("\\|", "\\\\|").replaceAll("\\*", "[^|]*") + ".*");
-		} else {
-			matcher = new StringPrefixMatcher(orderedDomainPattern.getDomainPattern());
-		}
-		this.ordering = orderedDomainPattern.getOrder();
+        Objects.requireNonNull(orderedDomainPattern, "\"orderedDomainPattern\" must not be null");
+        this.pattern = orderedDomainPattern;
 		this.value = value;
 	}
 
@@ -64,14 +58,14 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 	 */
 	@Override
 	public int compareTo(final DomainSpecificValue other) {
-		int order = other.ordering - this.ordering;
+		int order = Long.compare(other.pattern.getOrder(), pattern.getOrder());
 		if (order == 0) {
 			if (changeSet != null && other.changeSet != null) {
 				int changeSetCompare = other.changeSet.compareTo(changeSet);
 				if (changeSetCompare != 0)
 					return changeSetCompare;
 				else
-					return patternStr.compareTo(other.patternStr);
+					return getPatternStr().compareTo(other.getPatternStr());
 			}
 			if (changeSet != null) { // other.changeSet is null here
 				return -1;
@@ -79,7 +73,7 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 			if (other.changeSet != null) { // changeSet is null here
 				return 1;
 			}
-			return patternStr.compareTo(other.patternStr);
+			return getPatternStr().compareTo(other.getPatternStr());
 		}
 		return order;
 	}
@@ -91,8 +85,8 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 
 		DomainSpecificValue that = (DomainSpecificValue) o;
 
-		if (ordering != that.ordering) return false;
-		if (!patternStr.equals(that.patternStr)) return false;
+		if (pattern.getOrder() != that.pattern.getOrder()) return false;
+		if (!getPatternStr().equals(that.getPatternStr())) return false;
 		if (!value.equals(that.value)) return false;
 		return changeSet != null ? changeSet.equals(that.changeSet) : that.changeSet == null;
 
@@ -100,8 +94,8 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 
 	@Override
 	public int hashCode() {
-		int result = patternStr.hashCode();
-		result = 31 * result + ordering;
+		int result = getPatternStr().hashCode();
+		result = 31 * result + Long.hashCode(pattern.getOrder());
 		result = 31 * result + value.hashCode();
 		result = 31 * result + (changeSet != null ? changeSet.hashCode() : 0);
 		return result;
@@ -110,27 +104,82 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
 	@Override
 	public String toString() {
 		return "DomainSpecificValue{" +
-			"pattern=\"" + patternStr +
-			"\", ordering=" + ordering +
+			"pattern=\"" + getPatternStr() +
+			"\", ordering=" + pattern.getOrder() +
 			(changeSet != null ? ", changeSet=\"" + changeSet + '"' : "") +
-			", value=\"" + value +
+			", value=\"" + getValue() +
 			"\"}";
 	}
 
 	public String getPatternStr() {
-		return patternStr;
+		return pattern.getDomainPattern();
+	}
+
+	public OrderedDomainPattern getOrderedDomainPattern() {
+		return pattern;
 	}
 
 	public Object getValue() {
+		Object storedValue = value;
+		return storedValue instanceof EncodedValue ? ((EncodedValue)storedValue).decode() : storedValue;
+	}
+
+	/**
+	 * @return the value as stored, which might be an encoded representation of the value
+	 */
+	Object getStoredValue() {
 		return value;
 	}
 
-	public void setValue(final Object value) {
+	/**
+	 * Replaces the stored representation of an unchanged value, so the version is not incremented.
+	 *
+	 * @return false, if the value has been changed in the meantime and was not replaced
+	 */
+	synchronized boolean replaceStoredValue(final Object expectedValue, final Object storedValue) {
+		if (value != expectedValue) {
+			return false;
+		}
+		value = storedValue;
+		return true;
+	}
+
+	/**
+	 * Replaces the value and increments the version. The value is published through a volatile write, so readers on
+	 * other threads see it without locking. Writers are serialized, so no increment of the version is lost.
+	 */
+	public synchronized void setValue(final Object value) {
 		this.value = value;
+		version++;
+	}
+
+	/**
+	 * @return the number of times the value has been replaced since this DomainSpecificValue was created
+	 */
+	public long getVersion() {
+		return version;
 	}
 
 	public boolean matches(final String domainStr) {
-		return matcher.matches(domainStr);
+		return pattern.getMatcher().matches(domainStr);
+	}
+
+	/**
+	 * @return the pattern encoded by the given DomainSymbolTable, or null, when the pattern was not encoded by that table
+	 * and has to be matched by its Matcher
+	 */
+	int[] getDomainSymbols(final DomainSymbolTable domainSymbolTable) {
+		EncodedPattern encoded = encodedPattern;
+		return encoded != null && encoded.domainSymbolTable == domainSymbolTable ? encoded.domainSymbols : null;
+	}
+
+	/**
+	 * Replaces the table and the symbols at once, so lookups running concurrently never pair symbols with another table.
+	 *
+	 * @param domainSymbols the pattern encoded by the given table, or null, when the table can not encode the pattern
+	 */
+	void setDomainSymbols(final DomainSymbolTable domainSymbolTable, final int[] domainSymbols) {
+		encodedPattern = domainSymbolTable == null || domainSymbols == null ? null : new EncodedPattern(domainSymbolTable, domainSymbols);
 	}
 
 	public void setChangeSet(final String changeSet) {
@@ -149,4 +198,14 @@ public class DomainSpecificValue implements Comparable<DomainSpecificValue> {
     public String getChangeSet() {
         return changeSet;
     }
+
+	private static final class EncodedPattern {
+		private final DomainSymbolTable domainSymbolTable;
+		private final int[] domainSymbols;
+
+		EncodedPattern(final DomainSymbolTable domainSymbolTable, final int[] domainSymbols) {
+			this.domainSymbolTable = domainSymbolTable;
+			this.domainSymbols = domainSymbols;
+		}
+	}
 }
@@ -17,6 +17,8 @@
 
 package com.parship.roperty;
 
+import java.util.Collection;
+
 /**
  * @author mfinsterwalder
  * @since 2013-06-03 14:33
@@ -24,4 +26,26 @@ package com.parship.roperty;
 public interface DomainSpecificValueFactory {
 
 	DomainSpecificValue create(final Object value, final String changeSet, final String... domainValues);
+
+	/**
+	 * @return the table used to encode the patterns of the created values or null, when patterns are not encoded
+	 * and have to be matched as strings
+	 */
+	default DomainSymbolTable getDomainSymbolTable() {
+		return null;
+	}
+
+	/**
+	 * Is called before all values are reloaded from persistence, so factories keeping resources per generation of
+	 * values can start a new generation.
+	 */
+	default void startGeneration() {
+	}
+
+	/**
+	 * Is called after all values have been reloaded with the KeyValues of the new generation, which might still hold
+	 * values created in an older generation, because persistence reused them.
+	 */
+	default void finishGeneration(final Collection<KeyValues> keyValues) {
+	}
 }
@@ -0,0 +1,83 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+/**
+ * Stores large text values as deduplicated UTF-8 byte arrays instead of Strings, which saves memory especially
+ * for non-Latin texts. Texts from a configurable size on are additionally deflate-compressed.
+ * Texts are decoded lazily on access, recently decoded texts are kept in a small cache.
+ * Shorter texts and other values are deduplicated, but kept as they are.
+ */
+public class DomainSpecificValueFactoryWithCompactText extends AbstractDomainSpecificValueFactory implements DomainSpecificValueFactory {
+
+    public static final int DEFAULT_MIN_TEXT_LENGTH = 64;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    private static final int MAX_CHANGE_SETS = 1 << 12;
+
+    private final int minTextLength;
+    private final int compressionThreshold;
+    private final DecodedTextCache cache;
+    private final DeduplicationPool valuePool = new DeduplicationPool(
+        value -> value instanceof String || value instanceof CompactText, DomainSpecificValueFactoryWithDeduplication.DEFAULT_MAX_VALUES);
+    private final DeduplicationPool changeSetPool = new DeduplicationPool(DeduplicationStrategy.stringsOnly(), MAX_CHANGE_SETS);
+
+    public DomainSpecificValueFactoryWithCompactText() {
+        this(DEFAULT_MIN_TEXT_LENGTH, DEFAULT_COMPRESSION_THRESHOLD, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param minTextLength        texts with at least this number of chars are stored as UTF-8 bytes
+     * @param compressionThreshold texts with at least this number of UTF-8 bytes are compressed, use Integer.MAX_VALUE to disable compression
+     * @param cacheSize            number of decoded texts to keep
+     */
+    public DomainSpecificValueFactoryWithCompactText(final int minTextLength, final int compressionThreshold, final int cacheSize) {
+        this.minTextLength = minTextLength;
+        this.compressionThreshold = compressionThreshold;
+        this.cache = new DecodedTextCache(cacheSize);
+    }
+
+    @Override
+    public DomainSpecificValue create(final Object value, final String changeSet, final String... domainKeyParts) {
+        Object storedValue = valuePool.deduplicate(encode(value));
+        String pooledChangeSet = changeSetPool.deduplicate(changeSet);
+
+        if (domainKeyParts.length == 0) {
+            return createDomainSpecificValue(DomainPatternPool.getInstance().get("", 1), storedValue, pooledChangeSet);
+        }
+
+        return createDomainSpecificValue(calculateOrderedDomainPattern(domainKeyParts), storedValue, pooledChangeSet);
+    }
+
+    private Object encode(final Object value) {
+        if (value instanceof String && ((String)value).length() >= minTextLength) {
+            return CompactText.encode((String)value, compressionThreshold, cache);
+        }
+        return value;
+    }
+
+    public DeduplicationPool getValuePool() {
+        return valuePool;
+    }
+
+    @Override
+    public String toString() {
+        return "DomainSpecificValueFactoryWithCompactText{minTextLength=" + minTextLength + ", compressionThreshold=" + compressionThreshold
+            + ", values=" + valuePool + '}';
+    }
+}
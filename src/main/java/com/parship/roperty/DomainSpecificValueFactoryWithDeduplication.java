@@ -0,0 +1,72 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+/**
+ * Deduplicates values and changeSets through bounded, weakly referencing pools owned by this factory.
+ * In contrast to {@link DomainSpecificValueFactoryWithStringInterning} nothing ends up in the JVM string table, the
+ * pool sizes are limited, hit rates can be monitored and non-String values can be deduplicated as well.
+ * Domain values need no deduplication, since patterns are shared through the {@link DomainPatternPool}.
+ * <p>
+ * The default factory of {@link RopertyImpl} is still {@link DomainSpecificValueFactoryWithStringInterning}. This
+ * factory is used by passing it to a RopertyImpl constructor, directly or through a {@link FactoryProvider}:
+ * <pre>
+ * new RopertyImpl(persistence, new DefaultKeyValuesFactory(), new DomainSpecificValueFactoryWithDeduplication(), domains);
+ * </pre>
+ */
+public class DomainSpecificValueFactoryWithDeduplication extends AbstractDomainSpecificValueFactory implements DomainSpecificValueFactory {
+
+    public static final int DEFAULT_MAX_VALUES = 1 << 20;
+    private static final int MAX_CHANGE_SETS = 1 << 12;
+
+    private final DeduplicationPool valuePool;
+    private final DeduplicationPool changeSetPool = new DeduplicationPool(DeduplicationStrategy.stringsOnly(), MAX_CHANGE_SETS);
+
+    public DomainSpecificValueFactoryWithDeduplication() {
+        this(DeduplicationStrategy.stringsOnly(), DEFAULT_MAX_VALUES);
+    }
+
+    public DomainSpecificValueFactoryWithDeduplication(final DeduplicationStrategy valueStrategy, final int maxValues) {
+        valuePool = new DeduplicationPool(valueStrategy, maxValues);
+    }
+
+    @Override
+    public DomainSpecificValue create(final Object value, final String changeSet, final String... domainKeyParts) {
+        Object pooledValue = valuePool.deduplicate(value);
+        String pooledChangeSet = changeSetPool.deduplicate(changeSet);
+
+        if (domainKeyParts.length == 0) {
+            return createDomainSpecificValue(DomainPatternPool.getInstance().get("", 1), pooledValue, pooledChangeSet);
+        }
+
+        return createDomainSpecificValue(calculateOrderedDomainPattern(domainKeyParts), pooledValue, pooledChangeSet);
+    }
+
+    public DeduplicationPool getValuePool() {
+        return valuePool;
+    }
+
+    public DeduplicationPool getChangeSetPool() {
+        return changeSetPool;
+    }
+
+    @Override
+    public String toString() {
+        return "DomainSpecificValueFactoryWithDeduplication{values=" + valuePool + ", changeSets=" + changeSetPool + '}';
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+
+/**
+ * Keeps text values off-heap in direct memory to reduce the heap size and thereby the old generation GC pauses of
+ * very large Roperty instances. Only a small index entry per value remains on the heap, texts are decoded on access.
+ * Recently decoded texts are kept in a small cache, so only texts missing in the cache allocate a new String.
+ * Other values are kept on the heap. Patterns and changeSets are shared on the heap through the
+ * {@link DomainPatternPool} and a {@link DeduplicationPool}, so they do not grow with the number of values.
+ * <p>
+ * Every reload starts a new arena generation. Values of older generations, which persistence reused during the
+ * reload, are copied into the new generation afterwards. The memory of the previous generation is released, as soon
+ * as it is no longer referenced by any value.
+ */
+public class DomainSpecificValueFactoryWithOffHeapValues extends AbstractDomainSpecificValueFactory implements DomainSpecificValueFactory {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    private static final int MAX_CHANGE_SETS = 1 << 12;
+
+    private final int chunkSize;
+    private final int cacheSize;
+    private final DeduplicationPool changeSetPool = new DeduplicationPool(DeduplicationStrategy.stringsOnly(), MAX_CHANGE_SETS);
+    private volatile ValueArena arena;
+
+    public DomainSpecificValueFactoryWithOffHeapValues() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize size in bytes of the direct buffers allocated for values
+     */
+    public DomainSpecificValueFactoryWithOffHeapValues(final int chunkSize) {
+        this(chunkSize, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param chunkSize size in bytes of the direct buffers allocated for values
+     * @param cacheSize number of decoded texts to keep
+     */
+    public DomainSpecificValueFactoryWithOffHeapValues(final int chunkSize, final int cacheSize) {
+        this.arena = new ValueArena(0, chunkSize, cacheSize);
+        this.chunkSize = chunkSize;
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public DomainSpecificValue create(final Object value, final String changeSet, final String... domainKeyParts) {
+        Object storedValue = value instanceof String ? arena.store(((String)value).getBytes(StandardCharsets.UTF_8)) : value;
+        String pooledChangeSet = changeSetPool.deduplicate(changeSet);
+
+        if (domainKeyParts.length == 0) {
+            return createDomainSpecificValue(DomainPatternPool.getInstance().get("", 1), storedValue, pooledChangeSet);
+        }
+
+        return createDomainSpecificValue(calculateOrderedDomainPattern(domainKeyParts), storedValue, pooledChangeSet);
+    }
+
+    @Override
+    public synchronized void startGeneration() {
+        arena = new ValueArena(arena.getGeneration() + 1, chunkSize, cacheSize);
+    }
+
+    /**
+     * Copies texts still stored in an older generation into the current one, so old chunks can be released.
+     */
+    @Override
+    public void finishGeneration(final Collection<KeyValues> keyValues) {
+        ValueArena currentArena = arena;
+        for (KeyValues values : keyValues) {
+            for (DomainSpecificValue domainSpecificValue : values.getDomainSpecificValues()) {
+                Object storedValue = domainSpecificValue.getStoredValue();
+                if (storedValue instanceof ArenaValue && ((ArenaValue)storedValue).getGeneration() != currentArena.getGeneration()) {
+                    domainSpecificValue.replaceStoredValue(storedValue, currentArena.store(((ArenaValue)storedValue).getBytes()));
+                }
+            }
+        }
+    }
+
+    public int getGeneration() {
+        return arena.getGeneration();
+    }
+
+    /**
+     * @return the direct memory allocated by the current generation
+     */
+    public long getAllocatedBytes() {
+        return arena.getAllocatedBytes();
+    }
+
+    /**
+     * @return the direct memory used for values by the current generation
+     */
+    public long getUsedBytes() {
+        return arena.getUsedBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "DomainSpecificValueFactoryWithOffHeapValues{arena=" + arena + '}';
+    }
+}
@@ -13,10 +13,10 @@ public class DomainSpecificValueFactoryWithStringInterning extends AbstractDomai
         String[] internDomainKeyParts=internDomainKeyParts(domainKeyParts);
 
         if (internDomainKeyParts.length == 0) {
-            return new DomainSpecificValue(new OrderedDomainPattern("", 1), internValue, internChangeSet);
+            return createDomainSpecificValue(DomainPatternPool.getInstance().get("", 1), internValue, internChangeSet);
         }
 
-        return new DomainSpecificValue(calculateOrderedDomainPattern(internDomainKeyParts), internValue, internChangeSet);
+        return createDomainSpecificValue(calculateOrderedDomainPattern(internDomainKeyParts), internValue, internChangeSet);
     }
 
     private static String[] internDomainKeyParts(String[] domainKeyParts) {
@@ -0,0 +1,60 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Predicate;
+
+
+/**
+ * Holds the DomainSpecificValues of a single KeyValues instance in resolution order.
+ * Iteration always visits the values in the order defined by {@link DomainSpecificValue#compareTo(DomainSpecificValue)}.
+ */
+interface DomainSpecificValueStorage extends Iterable<DomainSpecificValue> {
+
+    /**
+     * Adds the given value or, when a value with the same pattern and changeSet exists, replaces its value.
+     * Finding the existing value takes O(log n).
+     *
+     * @return the value held by this storage afterwards, which is either the given or the existing value
+     */
+    DomainSpecificValue addOrChange(DomainSpecificValue domainSpecificValue);
+
+    /**
+     * @return the first value matching the filter, which has been removed, or null, when no value matched
+     */
+    DomainSpecificValue removeFirst(Predicate<DomainSpecificValue> filter);
+
+    /**
+     * @return all values matching the filter, which have been removed
+     */
+    Collection<DomainSpecificValue> removeAll(Predicate<DomainSpecificValue> filter);
+
+    Set<DomainSpecificValue> unmodifiableSet();
+
+    /**
+     * @return the number of values, which might take O(n)
+     */
+    int size();
+
+    /**
+     * @return true, if there are no values, in O(1)
+     */
+    boolean isEmpty();
+}
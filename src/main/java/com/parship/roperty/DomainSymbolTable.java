@@ -0,0 +1,149 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Dictionary mapping domain values like "de", "DE" or "google" to small integer symbols.
+ * Symbols are assigned when values are stored, so domain patterns can be encoded as int arrays and matched against
+ * the resolved domain values of a query by integer comparisons.
+ * Resolved domain values, which are not part of any stored pattern, are mapped to {@link #UNKNOWN} and
+ * therefore only match wildcards.
+ */
+public class DomainSymbolTable {
+
+    /**
+     * Symbol of the wildcard "*" in encoded patterns.
+     */
+    public static final int WILDCARD = 0;
+
+    /**
+     * Symbol of resolved domain values, which do not occur in any pattern.
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final String WILDCARD_VALUE = "*";
+    private static final int[] NOT_ENCODABLE = new int[0];
+
+    private final Map<String, Integer> symbols = new ConcurrentHashMap<>();
+    private final Map<OrderedDomainPattern, int[]> encodedPatterns = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSymbol = new AtomicInteger(WILDCARD + 1);
+
+    /**
+     * @return the symbol of the given domain value, which is assigned when the value is not yet known
+     */
+    public int symbolFor(final String domainValue) {
+        if (WILDCARD_VALUE.equals(domainValue)) {
+            return WILDCARD;
+        }
+        Integer symbol = symbols.get(domainValue);
+        if (symbol == null) {
+            symbol = symbols.computeIfAbsent(domainValue, v -> nextSymbol.getAndIncrement());
+        }
+        return symbol;
+    }
+
+    /**
+     * @return the symbol of the given domain value or {@link #UNKNOWN}, when the value does not occur in any pattern
+     */
+    public int lookup(final String domainValue) {
+        Integer symbol = symbols.get(domainValue);
+        return symbol == null ? UNKNOWN : symbol;
+    }
+
+    /**
+     * Maps resolved domain values into the symbol space. Is called once per lookup.
+     */
+    public int[] lookup(final String[] domainValues) {
+        int[] domainSymbols = new int[domainValues.length];
+        for (int i = 0; i < domainValues.length; i++) {
+            domainSymbols[i] = lookup(domainValues[i]);
+        }
+        return domainSymbols;
+    }
+
+    /**
+     * Encodes the pattern as symbols, assigning symbols to unknown domain values.
+     * Encoded patterns are cached, so all values with the same pattern share the same array.
+     *
+     * @return the encoded pattern or null, when the pattern contains a partial wildcard like "d*", which can only be
+     * matched by the Matcher of the pattern
+     */
+    public int[] encode(final OrderedDomainPattern pattern) {
+        int[] encodedPattern = encodedPatterns.get(pattern);
+        if (encodedPattern == null) {
+            encodedPattern = encodedPatterns.computeIfAbsent(pattern, p -> encode(p.getDomainPattern()));
+        }
+        return encodedPattern == NOT_ENCODABLE ? null : encodedPattern;
+    }
+
+    private int[] encode(final String domainPattern) {
+        if (domainPattern.isEmpty()) {
+            return new int[0];
+        }
+        String[] domainValues = domainPattern.split("\\|");
+        for (String domainValue : domainValues) {
+            if (isPartialWildcard(domainValue)) {
+                return NOT_ENCODABLE;
+            }
+        }
+        int[] encodedPattern = new int[domainValues.length];
+        for (int i = 0; i < domainValues.length; i++) {
+            encodedPattern[i] = symbolFor(domainValues[i]);
+        }
+        return encodedPattern;
+    }
+
+    /**
+     * @return true for domain values like "d*", which contain a wildcard, but are not the wildcard "*" itself
+     */
+    static boolean isPartialWildcard(final String domainValue) {
+        return domainValue.indexOf('*') >= 0 && !WILDCARD_VALUE.equals(domainValue);
+    }
+
+    /**
+     * Checks whether an encoded pattern matches the symbols of resolved domain values.
+     * This is equivalent to matching the pattern string against the domain string, for all patterns which
+     * {@link #encode(OrderedDomainPattern)} can encode.
+     */
+    public static boolean matches(final int[] encodedPattern, final int[] domainSymbols) {
+        if (encodedPattern.length > domainSymbols.length) {
+            return false;
+        }
+        for (int i = 0; i < encodedPattern.length; i++) {
+            int symbol = encodedPattern[i];
+            if (symbol != WILDCARD && symbol != domainSymbols[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    @Override
+    public String toString() {
+        return "DomainSymbolTable{symbols=" + size() + ", patterns=" + encodedPatterns.size() + '}';
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Immutable Roperty view created by {@link RopertyImpl#freeze()}. All values are compiled into a
+ * {@link CompiledValuesStore} with a minimal perfect hash over the keys, so a get neither takes a lock nor reads a
+ * volatile field. All methods changing values throw an UnsupportedOperationException.
+ * <p>
+ * Every reload of the source Roperty, through this view, the source itself or JMX, swaps in a new frozen generation.
+ * The generation only has final fields and is published through a plain field: readers never see a partially built
+ * generation, but other threads may keep reading the previous generation for a short while after the reload returned.
+ */
+public final class FrozenRoperty implements Roperty {
+
+    private final RopertyImpl source;
+    private Generation generation;
+
+    FrozenRoperty(final RopertyImpl source) {
+        Objects.requireNonNull(source, "\"source\" must not be null");
+        this.source = source;
+        this.generation = new Generation(source);
+        source.addChangeListener(new ReloadListener(this, source));
+    }
+
+    @Override
+    public <T> T get(final String key, final T defaultValue, final DomainResolver resolver) {
+        Ensure.notEmpty(key, "key");
+        Generation current = generation;
+        return current.store.get(key.trim(), current.domains, defaultValue, resolver);
+    }
+
+    @Override
+    public <T> T get(final String key, final DomainResolver resolver) {
+        return get(key, null, resolver);
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the key has no value and would need to be defined
+     */
+    @Override
+    public <T> T getOrDefine(final String key, final T defaultValue, final DomainResolver resolver) {
+        return getOrDefine(key, defaultValue, resolver, null);
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the key has no value and would need to be defined
+     */
+    @Override
+    public <T> T getOrDefine(final String key, final T defaultValue, final DomainResolver resolver, final String description) {
+        T value = get(key, resolver);
+        if (value != null) {
+            return value;
+        }
+        throw unsupported("define key \"" + key + '"');
+    }
+
+    @Override
+    public Roperty addDomains(final String... domains) {
+        throw unsupported("add domains");
+    }
+
+    @Override
+    public void set(final String key, final Object value, final String description, final String... domains) {
+        throw unsupported("set values");
+    }
+
+    @Override
+    public void setWithChangeSet(final String key, final Object value, final String description, final String changeSet, final String... domains) {
+        throw unsupported("set values");
+    }
+
+    @Override
+    public void setKeyValuesMap(final Map<String, KeyValues> keyValuesMap) {
+        throw unsupported("set values");
+    }
+
+    @Override
+    public void removeWithChangeSet(final String key, final String changeSet, final String... domainValues) {
+        throw unsupported("remove values");
+    }
+
+    @Override
+    public void remove(final String key, final String... domainValues) {
+        throw unsupported("remove values");
+    }
+
+    @Override
+    public void removeKey(final String key) {
+        throw unsupported("remove keys");
+    }
+
+    @Override
+    public void removeChangeSet(final String changeSet) {
+        throw unsupported("remove changeSets");
+    }
+
+    private static UnsupportedOperationException unsupported(final String operation) {
+        return new UnsupportedOperationException("Can not " + operation + " in a frozen Roperty");
+    }
+
+    /**
+     * Reloads the source Roperty, which swaps in a new frozen generation.
+     */
+    @Override
+    public void reload() {
+        source.reload();
+    }
+
+    private void refresh() {
+        generation = new Generation(source);
+    }
+
+    /**
+     * @return the KeyValues the current generation was compiled from. Changing them has no effect on this view.
+     */
+    @Override
+    public KeyValues getKeyValues(final String key) {
+        Ensure.notEmpty(key, "key");
+        return generation.keyValues.get(key.trim());
+    }
+
+    /**
+     * @return the KeyValues the current generation was compiled from. Changing them has no effect on this view.
+     */
+    @Override
+    public Map<String, KeyValues> getKeyValues() {
+        return generation.keyValues;
+    }
+
+    @Override
+    public List<String> findKeys(final String substring, final String containerName) {
+        return source.findKeys(substring, containerName);
+    }
+
+    @Override
+    public StringBuilder dump() {
+        Generation current = generation;
+        StringBuilder builder = new StringBuilder("FrozenRoperty{domains=").append(current.domains);
+        for (Map.Entry<String, KeyValues> entry : current.keyValues.entrySet()) {
+            builder.append('\n').append("KeyValues for \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+        }
+        builder.append("\n}");
+        return builder;
+    }
+
+    @Override
+    public void dump(final PrintStream out) {
+        out.print(dump());
+    }
+
+    @Override
+    public String toString() {
+        Generation current = generation;
+        return "FrozenRoperty{domains=" + current.domains + ", store=" + current.store + '}';
+    }
+
+    private static final class Generation {
+        private final DomainSchema domains;
+        private final Map<String, KeyValues> keyValues;
+        private final CompiledValuesStore store;
+
+        Generation(final RopertyImpl source) {
+            domains = source.getDomainSchema();
+            keyValues = Collections.unmodifiableMap(source.getValuesStore().snapshot());
+            store = CompiledValuesStore.compile(keyValues, MinimalPerfectHashKeyIndex::new);
+        }
+    }
+
+    /**
+     * Refreshes the frozen view after reloads of its source. It only holds the view weakly and unregisters itself once
+     * the view was garbage collected, so frozen views no longer used do not stay reachable through their source.
+     */
+    private static final class ReloadListener implements RopertyChangeListener {
+        private final WeakReference<FrozenRoperty> frozen;
+        private final RopertyImpl source;
+
+        ReloadListener(final FrozenRoperty frozen, final RopertyImpl source) {
+            this.frozen = new WeakReference<>(frozen);
+            this.source = source;
+        }
+
+        @Override
+        public void keyChanged(final String key) {
+            // changes made after freezing are only visible after a reload
+        }
+
+        @Override
+        public void allKeysChanged() {
+            // changes made after freezing are only visible after a reload
+        }
+
+        @Override
+        public void reloaded() {
+            FrozenRoperty view = frozen.get();
+            if (view == null) {
+                source.removeChangeListener(this);
+            } else {
+                view.refresh();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+
+/**
+ * Tracks the keys, winning patterns and resolved domain vectors seen most often by the get path of a RopertyImpl.
+ * Only one in sampleRate lookups is recorded, into space-saving sketches of fixed capacity, so the memory is bounded
+ * regardless of the number of keys. Disabled tracking costs a single volatile read per lookup.
+ */
+public final class HotspotTracker implements HotspotTrackerMBean {
+
+    public static final int DEFAULT_CAPACITY = 128;
+    public static final int DEFAULT_SAMPLE_RATE = 64;
+    static final String DEFAULT_PATTERN = "<default>";
+    static final String NO_MATCH = "<no match>";
+
+    private volatile boolean enabled;
+    private volatile int sampleMask = DEFAULT_SAMPLE_RATE - 1;
+    private final LongAdder sampledLookups = new LongAdder();
+    private final SpaceSavingSketch<String> keys;
+    private final SpaceSavingSketch<String> patterns;
+    private final SpaceSavingSketch<String> domainVectors;
+
+    public HotspotTracker() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HotspotTracker(final int capacity) {
+        keys = new SpaceSavingSketch<>(capacity);
+        patterns = new SpaceSavingSketch<>(capacity);
+        domainVectors = new SpaceSavingSketch<>(capacity);
+    }
+
+    /**
+     * @return true, if the current lookup should be recorded
+     */
+    boolean sample() {
+        return enabled && (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    /**
+     * @param winner the value returned by the lookup, null if no value matched
+     */
+    void record(final String key, final DomainSpecificValue winner, final DomainSchema domainSchema, final DomainResolver resolver) {
+        sampledLookups.increment();
+        keys.offer(key);
+        patterns.offer(key + " -> " + describe(winner));
+        domainVectors.offer(domainVector(domainSchema, resolver));
+    }
+
+    private static String domainVector(final DomainSchema domainSchema, final DomainResolver resolver) {
+        StringBuilder builder = new StringBuilder(domainSchema.size() * 8);
+        for (String domain : domainSchema) {
+            String domainValue = resolver == null ? null : resolver.getDomainValue(domain);
+            builder.append(domainValue == null ? "" : domainValue).append('|');
+        }
+        return builder.toString();
+    }
+
+    private static String describe(final DomainSpecificValue winner) {
+        if (winner == null) {
+            return NO_MATCH;
+        }
+        String pattern = winner.getPatternStr().isEmpty() ? DEFAULT_PATTERN : winner.getPatternStr();
+        return winner.getChangeSet() == null ? pattern : pattern + " [" + winner.getChangeSet() + ']';
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * @param sampleRate record one in sampleRate lookups, rounded up to a power of two
+     */
+    @Override
+    public void setSampleRate(final int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive, but was: " + sampleRate);
+        }
+        int powerOfTwo = sampleRate == 1 ? 1 : Integer.highestOneBit(sampleRate - 1) << 1;
+        sampleMask = powerOfTwo - 1;
+    }
+
+    @Override
+    public long getSampledLookups() {
+        return sampledLookups.sum();
+    }
+
+    public List<SpaceSavingSketch.Counter<String>> getHottestKeys(final int count) {
+        return keys.top(count);
+    }
+
+    public List<SpaceSavingSketch.Counter<String>> getHottestPatterns(final int count) {
+        return patterns.top(count);
+    }
+
+    public List<SpaceSavingSketch.Counter<String>> getHottestDomainVectors(final int count) {
+        return domainVectors.top(count);
+    }
+
+    @Override
+    public String listHottestKeys(final int count) {
+        return format(keys.top(count));
+    }
+
+    /**
+     * @return the most often winning patterns as "key -> pattern", one per line
+     */
+    @Override
+    public String listHottestPatterns(final int count) {
+        return format(patterns.top(count));
+    }
+
+    @Override
+    public String listHottestDomainVectors(final int count) {
+        return format(domainVectors.top(count));
+    }
+
+    private static String format(final List<SpaceSavingSketch.Counter<String>> counters) {
+        return counters.stream().map(SpaceSavingSketch.Counter::toString).collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    public void reset() {
+        sampledLookups.reset();
+        keys.clear();
+        patterns.clear();
+        domainVectors.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "HotspotTracker{enabled=" + enabled + ", sampleRate=" + getSampleRate() + ", sampledLookups=" + getSampledLookups() + '}';
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+/**
+ * Hottest keys, winning patterns and domain vectors of a RopertyImpl, registered by
+ * {@link com.parship.roperty.jmx.RopertyManager#registerHotspots(String, HotspotTracker)}.
+ */
+public interface HotspotTrackerMBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    int getSampleRate();
+    void setSampleRate(int sampleRate);
+    long getSampledLookups();
+    String listHottestKeys(int count);
+    String listHottestPatterns(int count);
+    String listHottestDomainVectors(int count);
+    void reset();
+}
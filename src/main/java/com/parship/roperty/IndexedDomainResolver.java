@@ -0,0 +1,39 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+
+/**
+ * DomainResolver, which resolves all domain values of a {@link DomainSchema} at once into an array indexed by slot,
+ * instead of being asked for every domain by name.
+ */
+public interface IndexedDomainResolver extends DomainResolver {
+
+    /**
+     * Fills the values of all domains of the schema into the array at their slot index.
+     * Domains without value may be left null.
+     */
+    void resolve(DomainSchema schema, String[] domainValues);
+
+    /**
+     * @return the value of the domain at the slot of the schema
+     */
+    default String getDomainValue(DomainSchema schema, int slot) {
+        return getDomainValue(schema.getDomain(slot));
+    }
+}
@@ -17,14 +17,13 @@
 
 package com.parship.roperty;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
@@ -38,12 +37,31 @@ import java.util.concurrent.ConcurrentSkipListSet;
 public class KeyValues {
 
 	private static final String DOMAIN_SEPARATOR = "|";
+	private static final long ACCESS_GRANULARITY_MILLIS = 1000;
 	private String description;
-	private final Set<DomainSpecificValue> domainSpecificValues = new ConcurrentSkipListSet<>();
+	private final DomainSpecificValueStorage domainSpecificValues;
 	private DomainSpecificValueFactory domainSpecificValueFactory;
+	private volatile DomainSpecificValue defaultOnlyValue;
+	private volatile LookupCounters lookupCounters;
+	private volatile int depth;
+	private volatile long lastAccess;
+	private volatile ScanStatistics scanStatistics;
+	private volatile int version;
+	private volatile int plannedVersion = -1;
+	private volatile LookupPlan lookupPlan = LookupPlan.LINEAR;
+	private volatile LookupIndex lookupIndex;
 
 	public KeyValues(final DomainSpecificValueFactory domainSpecificValueFactory) {
+		this(domainSpecificValueFactory, new SkipListDomainSpecificValueStorage());
+	}
+
+	KeyValues(final DomainSpecificValueFactory domainSpecificValueFactory, final DomainSpecificValueStorage domainSpecificValues) {
 		this.domainSpecificValueFactory = domainSpecificValueFactory;
+		this.domainSpecificValues = domainSpecificValues;
+		for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
+			increaseDepth(domainSpecificValue.getOrderedDomainPattern().getDepth());
+		}
+		changed();
 	}
 
 	public DomainSpecificValue put(Object value, String... domainKeyParts) {
@@ -60,17 +78,40 @@ public class KeyValues {
 
 	private DomainSpecificValue addOrChangeDomainSpecificValue(final String changeSet, final Object value, final String[] domainKeyParts) {
 		DomainSpecificValue domainSpecificValue = domainSpecificValueFactory.create(value, changeSet, domainKeyParts);
+		increaseDepth(domainSpecificValue.getOrderedDomainPattern().getDepth());
+		DomainSpecificValue storedValue = domainSpecificValues.addOrChange(domainSpecificValue);
+		changed();
+		return storedValue;
+	}
 
-		if (domainSpecificValues.contains(domainSpecificValue)) {
-			for (DomainSpecificValue d: domainSpecificValues) {
-				if(d.compareTo(domainSpecificValue) == 0) {
-					d.setValue(domainSpecificValue.getValue());
+	/**
+	 * Invalidates the lookup plan and determines, whether only a default value is left, after the values changed.
+	 */
+	private synchronized void changed() {
+		version++;
+		DomainSpecificValue onlyValue = null;
+		Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
+		if (iterator.hasNext()) {
+			DomainSpecificValue first = iterator.next();
+			if (!iterator.hasNext() && first.getChangeSet() == null && first.getPatternStr().isEmpty()) {
+				onlyValue = first;
+			}
+		}
+		defaultOnlyValue = onlyValue;
+	}
+
+	/**
+	 * The depth is only increased, even when values are removed, so it is always at least the deepest domain
+	 * position referenced by any pattern, also under concurrent changes.
+	 */
+	private void increaseDepth(final int patternDepth) {
+		if (patternDepth > depth) {
+			synchronized (this) {
+				if (patternDepth > depth) {
+					depth = patternDepth;
 				}
 			}
-		} else {
-			domainSpecificValues.add(domainSpecificValue);
 		}
-		return domainSpecificValue;
 	}
 
 	public <T> T get(Iterable<String> domains, T defaultValue, final DomainResolver resolver) {
@@ -79,29 +120,223 @@ public class KeyValues {
 		if (domainsIterator.hasNext() && resolver == null) {
 			throw new IllegalArgumentException("If a domain is specified, the domain resolver must not be null");
 		}
-        String domainStr = buildDomain(domainsIterator, resolver);
-		for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
-			if ((resolver == null || domainSpecificValue.isInChangeSets(resolver.getActiveChangeSets())) && domainSpecificValue.matches(domainStr)) {
-				return (T)domainSpecificValue.getValue();
+		DomainSpecificValue defaultOnlyValue = getDefaultOnlyValue();
+		if (defaultOnlyValue != null) {
+			return (T)defaultOnlyValue.getValue();
+		}
+		return valueOrDefault(find(LazyDomainValues.of(domains, resolver, getDomainSymbolTable()), resolver, null, RopertyObserver.NOOP), defaultValue);
+	}
+
+	/**
+	 * Same as {@link #get(Iterable, Object, DomainResolver)}, but resolves the domain values by slot of the schema.
+	 */
+	public <T> T get(final DomainSchema domainSchema, final T defaultValue, final DomainResolver resolver) {
+		return valueOrDefault(find(domainSchema, resolver), defaultValue);
+	}
+
+	/**
+	 * @return the DomainSpecificValue, which wins the resolution for the domain values of the resolver, or null if none matches
+	 */
+	DomainSpecificValue find(final DomainSchema domainSchema, final DomainResolver resolver) {
+		return find(domainSchema, resolver, null, RopertyObserver.NOOP);
+	}
+
+	/**
+	 * Same as {@link #find(DomainSchema, DomainResolver)}, reporting every evaluated candidate to the observer.
+	 */
+	DomainSpecificValue find(final DomainSchema domainSchema, final DomainResolver resolver, final String key, final RopertyObserver observer) {
+		Objects.requireNonNull(domainSchema, "\"domainSchema\" must not be null");
+		if (domainSchema.size() > 0 && resolver == null) {
+			throw new IllegalArgumentException("If a domain is specified, the domain resolver must not be null");
+		}
+		DomainSpecificValue defaultOnlyValue = getDefaultOnlyValue();
+		if (defaultOnlyValue != null) {
+			return defaultOnlyValue;
+		}
+		return find(LazyDomainValues.of(domainSchema, resolver, getDomainSymbolTable()), resolver, key, observer);
+	}
+
+	private static <T> T valueOrDefault(final DomainSpecificValue domainSpecificValue, final T defaultValue) {
+		return domainSpecificValue == null ? defaultValue : (T)domainSpecificValue.getValue();
+	}
+
+	/**
+	 * Keys with nothing but a default value are resolved without asking the resolver for domain values.
+	 *
+	 * @return the only value, if it has the empty pattern and no changeSet, otherwise null
+	 */
+	private DomainSpecificValue getDefaultOnlyValue() {
+		return defaultOnlyValue;
+	}
+
+	/**
+	 * Only counted while access tracking is enabled.
+	 *
+	 * @return the number of lookups answered without resolving domain values, because the key only has a default value
+	 */
+	public long getDefaultOnlyLookups() {
+		LookupCounters counters = lookupCounters;
+		return counters == null ? 0 : counters.defaultOnly.sum();
+	}
+
+	/**
+	 * Only counted while access tracking is enabled.
+	 *
+	 * @return the number of lookups, which resolved domain values; lookups of keys without any value are not counted
+	 */
+	public long getResolvedLookups() {
+		LookupCounters counters = lookupCounters;
+		return counters == null ? 0 : counters.resolved.sum();
+	}
+
+	/**
+	 * @return the number of lookups of this key, which had at least one value, while access tracking was enabled
+	 */
+	public long getLookups() {
+		return getDefaultOnlyLookups() + getResolvedLookups();
+	}
+
+	/**
+	 * Records an access of this key and counts the lookup. Is only called while access tracking is enabled, so keys
+	 * do not pay for counters otherwise. The timestamp is only written, when it advances by at least a second,
+	 * so frequently read keys do not contend on writing it.
+	 */
+	public void recordAccess(final long timestamp) {
+		if (timestamp - lastAccess >= ACCESS_GRANULARITY_MILLIS) {
+			lastAccess = timestamp;
+		}
+		if (defaultOnlyValue != null) {
+			counters().defaultOnly.increment();
+		} else if (!domainSpecificValues.isEmpty()) {
+			counters().resolved.increment();
+		}
+	}
+
+	private LookupCounters counters() {
+		LookupCounters counters = lookupCounters;
+		if (counters == null) {
+			synchronized (this) {
+				counters = lookupCounters;
+				if (counters == null) {
+					counters = new LookupCounters();
+					lookupCounters = counters;
+				}
 			}
 		}
-		return defaultValue;
+		return counters;
+	}
+
+	/**
+	 * @return the time of the last recorded access in milliseconds, accurate to a second, or 0 if no access was recorded
+	 */
+	public long getLastAccess() {
+		return lastAccess;
 	}
 
-	private static String buildDomain(final Iterator<String> domainsIterator, final DomainResolver resolver) {
-		StringBuilder builder = new StringBuilder();
-		while (domainsIterator.hasNext()) {
-			String domain = domainsIterator.next();
-			String domainValue = resolver.getDomainValue(domain);
-			if (domainValue == null) {
-				domainValue = "";
+	private DomainSpecificValue find(final LazyDomainValues domainValues, final DomainResolver resolver, final String key, final RopertyObserver observer) {
+		LookupIndex index = currentLookupIndex();
+		int currentDepth = depth;
+		int scanned = 0;
+		DomainSpecificValue winner = null;
+		if (index == null || domainValues.size() == 0) {
+			for (Iterator<DomainSpecificValue> candidates = domainSpecificValues.iterator(); winner == null && candidates.hasNext(); scanned++) {
+				DomainSpecificValue candidate = candidates.next();
+				if (matches(candidate, domainValues, currentDepth, resolver, key, observer)) {
+					winner = candidate;
+				}
+			}
+		} else {
+			DomainSpecificValue[] candidates = index.candidates(domainValues.valueAt(0));
+			for (; winner == null && scanned < candidates.length; scanned++) {
+				if (matches(candidates[scanned], domainValues, currentDepth, resolver, key, observer)) {
+					winner = candidates[scanned];
+				}
 			}
-			if (domainValue.contains(DOMAIN_SEPARATOR)) {
-                throw new IllegalArgumentException("domainValues may not contain '" + DOMAIN_SEPARATOR + '\'');
-            }
-			builder.append(domainValue).append(DOMAIN_SEPARATOR);
 		}
-		return builder.toString();
+		ScanStatistics statistics = scanStatistics;
+		if (statistics != null) {
+			statistics.record(scanned);
+		}
+		return winner;
+	}
+
+	private static boolean matches(final DomainSpecificValue candidate, final LazyDomainValues domainValues, final int depth,
+		final DomainResolver resolver, final String key, final RopertyObserver observer) {
+		if (resolver != null && !candidate.isInChangeSets(resolver.getActiveChangeSets())) {
+			return false;
+		}
+		int[] patternSymbols = candidate.getDomainSymbols(domainValues.getDomainSymbolTable());
+		boolean matches = patternSymbols != null ? domainValues.matches(patternSymbols) : candidate.matches(domainValues.buildDomain(depth));
+		observer.candidateEvaluated(key, candidate, matches);
+		return matches;
+	}
+
+	/**
+	 * @return the index to use for lookups, null for a linear scan; plans again, if the values changed since the last plan
+	 */
+	private LookupIndex currentLookupIndex() {
+		if (plannedVersion != version) {
+			return plan();
+		}
+		return lookupIndex;
+	}
+
+	private synchronized LookupIndex plan() {
+		int currentVersion = version;
+		if (plannedVersion == currentVersion) {
+			return lookupIndex;
+		}
+		LookupPlanner planner = LookupPlanner.getInstance();
+		LookupPlan plan = LookupPlan.LINEAR;
+		int valueCount = domainSpecificValues.size();
+		if (valueCount < planner.getMinimumSize()) {
+			scanStatistics = null;
+		} else if (scanStatistics == null) {
+			scanStatistics = new ScanStatistics();
+		}
+		if (planner.worthPlanning(valueCount)) {
+			plan = planner.choose(getStatistics());
+		}
+		lookupIndex = plan == LookupPlan.INDEXED ? LookupIndex.build(domainSpecificValues, currentVersion) : null;
+		lookupPlan = plan;
+		plannedVersion = currentVersion;
+		return lookupIndex;
+	}
+
+	/**
+	 * Decides the lookup plan again, taking the lookups measured since the last plan into account.
+	 *
+	 * @return the chosen plan
+	 */
+	public LookupPlan replan() {
+		synchronized (this) {
+			plannedVersion = -1;
+			plan();
+		}
+		return lookupPlan;
+	}
+
+	/**
+	 * @return the plan of the last planning, which happens lazily on the first lookup after a change
+	 */
+	public LookupPlan getLookupPlan() {
+		return lookupPlan;
+	}
+
+	/**
+	 * Candidates scanned are only measured for keys with at least {@link LookupPlanner#getMinimumSize()} values,
+	 * since smaller keys are never planned.
+	 *
+	 * @return the current shape of the values and the average number of candidates scanned per resolving lookup
+	 */
+	public KeyValuesStatistics getStatistics() {
+		ScanStatistics statistics = scanStatistics;
+		double averageCandidatesScanned = statistics == null ? 0 : statistics.getAverageCandidatesScanned();
+		return KeyValuesStatistics.of(domainSpecificValues, averageCandidatesScanned, lookupPlan);
+	}
+
+	private DomainSymbolTable getDomainSymbolTable() {
+		return domainSpecificValueFactory == null ? null : domainSpecificValueFactory.getDomainSymbolTable();
 	}
 
 	public String getDescription() {
@@ -124,11 +359,18 @@ public class KeyValues {
 	}
 
 	public Set<DomainSpecificValue> getDomainSpecificValues() {
-		return Collections.unmodifiableSet(domainSpecificValues);
+		return domainSpecificValues.unmodifiableSet();
 	}
 
+	/**
+	 * Changes the factory for new values. Existing encoded values are re-encoded with the DomainSymbolTable of the new factory.
+	 */
 	public void setDomainSpecificValueFactory(final DomainSpecificValueFactory domainSpecificValueFactory) {
 		this.domainSpecificValueFactory = domainSpecificValueFactory;
+		DomainSymbolTable domainSymbolTable = domainSpecificValueFactory == null ? null : domainSpecificValueFactory.getDomainSymbolTable();
+		for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
+			domainSpecificValue.setDomainSymbols(domainSymbolTable, domainSymbolTable == null ? null : domainSymbolTable.encode(domainSpecificValue.getOrderedDomainPattern()));
+		}
 	}
 
 	public <T> T getDefaultValue() {
@@ -141,27 +383,39 @@ public class KeyValues {
 		for (String domainValue : domainKeyParts) {
 			builder.append(domainValue).append(DOMAIN_SEPARATOR);
 		}
-		Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
-		while(iterator.hasNext()) {
-			DomainSpecificValue value = iterator.next();
-			if (value.changeSetIs(changeSet) && builder.toString().equals(value.getPatternStr())) {
-				iterator.remove();
-				return value;
-			}
+		String patternStr = builder.toString();
+		DomainSpecificValue removed = domainSpecificValues.removeFirst(value -> value.changeSetIs(changeSet) && patternStr.equals(value.getPatternStr()));
+		if (removed != null) {
+			changed();
 		}
-		return null;
+		return removed;
 	}
 
 	public Collection<DomainSpecificValue> removeChangeSet(final String changeSet) {
-		Collection<DomainSpecificValue> removedValues = new ArrayList<>(domainSpecificValues.size());
-		Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
-		while(iterator.hasNext()) {
-			DomainSpecificValue value = iterator.next();
-			if (value.changeSetIs(changeSet)) {
-				removedValues.add(value);
-				iterator.remove();
-			}
+		Collection<DomainSpecificValue> removed = domainSpecificValues.removeAll(value -> value.changeSetIs(changeSet));
+		if (!removed.isEmpty()) {
+			changed();
+		}
+		return removed;
+	}
+
+	private static final class ScanStatistics {
+		private final LongAdder lookups = new LongAdder();
+		private final LongAdder candidatesScanned = new LongAdder();
+
+		void record(final int scanned) {
+			lookups.increment();
+			candidatesScanned.add(scanned);
+		}
+
+		double getAverageCandidatesScanned() {
+			long lookupCount = lookups.sum();
+			return lookupCount == 0 ? 0 : (double)candidatesScanned.sum() / lookupCount;
 		}
-		return removedValues;
+	}
+
+	private static final class LookupCounters {
+		private final LongAdder defaultOnly = new LongAdder();
+		private final LongAdder resolved = new LongAdder();
 	}
 }
@@ -0,0 +1,149 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+
+/**
+ * Shape and measured lookup cost of the values of a single key, used by the {@link LookupPlanner}.
+ */
+public final class KeyValuesStatistics {
+
+    private final int valueCount;
+    private final int overrideCount;
+    private final double wildcardRatio;
+    private final int[] cardinalities;
+    private final int unindexedCount;
+    private final double averageCandidatesScanned;
+    private final LookupPlan plan;
+
+    KeyValuesStatistics(final int valueCount, final int overrideCount, final double wildcardRatio, final int[] cardinalities,
+                        final int unindexedCount, final double averageCandidatesScanned, final LookupPlan plan) {
+        this.valueCount = valueCount;
+        this.overrideCount = overrideCount;
+        this.wildcardRatio = wildcardRatio;
+        this.cardinalities = cardinalities;
+        this.unindexedCount = unindexedCount;
+        this.averageCandidatesScanned = averageCandidatesScanned;
+        this.plan = plan;
+    }
+
+    static KeyValuesStatistics of(final Iterable<DomainSpecificValue> values, final double averageCandidatesScanned, final LookupPlan plan) {
+        int valueCount = 0;
+        int overrideCount = 0;
+        int positions = 0;
+        int wildcards = 0;
+        int unindexedCount = 0;
+        List<Set<String>> distinctValues = new ArrayList<>();
+        for (DomainSpecificValue value : values) {
+            valueCount++;
+            String pattern = value.getPatternStr();
+            if (!pattern.isEmpty()) {
+                overrideCount++;
+            }
+            if (LookupIndex.firstDomain(value) == null) {
+                unindexedCount++;
+            }
+            int position = 0;
+            int start = 0;
+            for (int end = pattern.indexOf('|'); end >= 0; end = pattern.indexOf('|', start)) {
+                String domainValue = pattern.substring(start, end);
+                positions++;
+                if (domainValue.indexOf('*') >= 0) {
+                    wildcards++;
+                } else {
+                    while (distinctValues.size() <= position) {
+                        distinctValues.add(new HashSet<>());
+                    }
+                    distinctValues.get(position).add(domainValue);
+                }
+                position++;
+                start = end + 1;
+            }
+        }
+        int[] cardinalities = new int[distinctValues.size()];
+        for (int i = 0; i < cardinalities.length; i++) {
+            cardinalities[i] = distinctValues.get(i).size();
+        }
+        double wildcardRatio = positions == 0 ? 0 : (double)wildcards / positions;
+        return new KeyValuesStatistics(valueCount, overrideCount, wildcardRatio, cardinalities, unindexedCount, averageCandidatesScanned, plan);
+    }
+
+    /**
+     * @return the number of all values including the default value and values of changeSets
+     */
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * @return the number of values with a domain pattern
+     */
+    public int getOverrideCount() {
+        return overrideCount;
+    }
+
+    /**
+     * @return the fraction of wildcards of all domain positions of all patterns
+     */
+    public double getWildcardRatio() {
+        return wildcardRatio;
+    }
+
+    /**
+     * @return the number of distinct values, which are not wildcards, for every domain position
+     */
+    public int[] getCardinalities() {
+        return cardinalities.clone();
+    }
+
+    public int getCardinality(final int position) {
+        return position < cardinalities.length ? cardinalities[position] : 0;
+    }
+
+    /**
+     * @return the number of values, which do not compare the first domain and are candidates of every lookup
+     */
+    public int getUnindexedCount() {
+        return unindexedCount;
+    }
+
+    /**
+     * @return the average number of values iterated per lookup, which resolved domain values, 0 before the first lookup
+     */
+    public double getAverageCandidatesScanned() {
+        return averageCandidatesScanned;
+    }
+
+    public LookupPlan getPlan() {
+        return plan;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyValuesStatistics{plan=" + plan + ", valueCount=" + valueCount + ", overrideCount=" + overrideCount
+            + ", wildcardRatio=" + String.format(Locale.ROOT, "%.2f", wildcardRatio) + ", cardinalities=" + Arrays.toString(cardinalities)
+            + ", averageCandidatesScanned=" + String.format(Locale.ROOT, "%.1f", averageCandidatesScanned) + '}';
+    }
+}
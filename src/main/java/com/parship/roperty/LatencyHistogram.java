@@ -0,0 +1,108 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Lock free latency histogram with power of two buckets. A duration of d nanoseconds is counted in bucket
+ * 64 - numberOfLeadingZeros(d), so bucket i holds durations below 2^i ns. Percentiles are reported as the
+ * upper bound of their bucket, which is accurate to a factor of two.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(final long nanos) {
+        long duration = Math.max(0, nanos);
+        buckets[Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(duration))].increment();
+        count.increment();
+        totalNanos.add(duration);
+        maxNanos.accumulate(duration);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0 : totalNanos.sum() / currentCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound in nanoseconds of the bucket containing the percentile, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(final double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return (1L << i) - 1;
+            }
+        }
+        return getMaxNanos();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount() + ", meanNanos=" + getMeanNanos() + ", p50Nanos<=" + getPercentileNanos(50)
+            + ", p99Nanos<=" + getPercentileNanos(99) + ", p999Nanos<=" + getPercentileNanos(99.9) + ", maxNanos=" + getMaxNanos() + '}';
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Domain values of a single lookup, which are resolved only when a pattern actually compares them.
+ * Wildcards and patterns failing on an earlier domain never trigger the resolution of deeper domains, so expensive
+ * resolver calls are skipped for most keys. Resolved values are looked up in the DomainSymbolTable once.
+ * Not thread-safe, a new instance is used per lookup.
+ */
+final class LazyDomainValues {
+
+    private static final String DOMAIN_SEPARATOR = "|";
+    private static final int NOT_LOOKED_UP = Integer.MIN_VALUE;
+
+    private final DomainSchema domainSchema;
+    private final String[] domains;
+    private final DomainResolver resolver;
+    private final DomainSymbolTable domainSymbolTable;
+    private final String[] values;
+    private int[] symbols;
+    private String domain;
+
+    private LazyDomainValues(final DomainSchema domainSchema, final String[] domains, final DomainResolver resolver, final DomainSymbolTable domainSymbolTable) {
+        this.domainSchema = domainSchema;
+        this.domains = domains;
+        this.resolver = resolver;
+        this.domainSymbolTable = domainSymbolTable;
+        this.values = new String[domainSchema == null ? domains.length : domainSchema.size()];
+    }
+
+    static LazyDomainValues of(final DomainSchema domainSchema, final DomainResolver resolver, final DomainSymbolTable domainSymbolTable) {
+        return new LazyDomainValues(domainSchema, null, resolver, domainSymbolTable);
+    }
+
+    static LazyDomainValues of(final Iterable<String> domains, final DomainResolver resolver, final DomainSymbolTable domainSymbolTable) {
+        String[] domainArray;
+        if (domains instanceof Collection) {
+            Collection<String> domainCollection = (Collection<String>)domains;
+            domainArray = domainCollection.toArray(new String[domainCollection.size()]);
+        } else {
+            List<String> domainList = new ArrayList<>();
+            domains.forEach(domainList::add);
+            domainArray = domainList.toArray(new String[domainList.size()]);
+        }
+        return new LazyDomainValues(null, domainArray, resolver, domainSymbolTable);
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the resolved value of the domain at the slot, an empty string if the resolver has no value
+     * @throws IllegalArgumentException if the value contains the domain separator '|'
+     */
+    String valueAt(final int slot) {
+        String value = values[slot];
+        if (value == null) {
+            if (domainSchema == null) {
+                value = resolver.getDomainValue(domains[slot]);
+            } else if (resolver instanceof IndexedDomainResolver) {
+                value = ((IndexedDomainResolver)resolver).getDomainValue(domainSchema, slot);
+            } else {
+                value = resolver.getDomainValue(domainSchema.getDomain(slot));
+            }
+            if (value == null) {
+                value = "";
+            } else if (value.contains(DOMAIN_SEPARATOR)) {
+                throw new IllegalArgumentException("domainValues may not contain '" + DOMAIN_SEPARATOR + '\'');
+            }
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    private int symbolAt(final int slot) {
+        if (symbols == null) {
+            symbols = new int[values.length];
+            Arrays.fill(symbols, NOT_LOOKED_UP);
+        }
+        int symbol = symbols[slot];
+        if (symbol == NOT_LOOKED_UP) {
+            symbol = domainSymbolTable.lookup(valueAt(slot));
+            symbols[slot] = symbol;
+        }
+        return symbol;
+    }
+
+    /**
+     * @return the table used to look up the symbols of the resolved values, or null, when only Matchers can be used
+     */
+    DomainSymbolTable getDomainSymbolTable() {
+        return domainSymbolTable;
+    }
+
+    /**
+     * Same as {@link DomainSymbolTable#matches(int[], int[])}, but only resolves the domains compared.
+     */
+    boolean matches(final int[] encodedPattern) {
+        if (encodedPattern.length > values.length) {
+            return false;
+        }
+        for (int slot = 0; slot < encodedPattern.length; slot++) {
+            int symbol = encodedPattern[slot];
+            if (symbol != DomainSymbolTable.WILDCARD && symbol != symbolAt(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The string is built on the first call only, so the depth must be the same for all calls of a lookup.
+     *
+     * @return the domain string like "de|DE|" built from the first domains up to the given depth
+     */
+    String buildDomain(final int depth) {
+        if (domain == null) {
+            StringBuilder builder = new StringBuilder();
+            for (int slot = 0, end = Math.min(depth, values.length); slot < end; slot++) {
+                builder.append(valueAt(slot)).append(DOMAIN_SEPARATOR);
+            }
+            domain = builder.toString();
+        }
+        return domain;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable index of the values of a key by the value of their first domain. Every bucket holds the values with that
+ * first domain value and all values, which do not compare the first domain exactly (the default value and patterns
+ * starting with a wildcard like "*" or "d*"), in resolution order. Scanning a bucket therefore finds the same value
+ * as scanning all values.
+ */
+final class LookupIndex {
+
+    private static final DomainSpecificValue[] EMPTY = new DomainSpecificValue[0];
+
+    private final int version;
+    private final Map<String, DomainSpecificValue[]> buckets;
+    private final DomainSpecificValue[] unindexed;
+
+    private LookupIndex(final int version, final Map<String, DomainSpecificValue[]> buckets, final DomainSpecificValue[] unindexed) {
+        this.version = version;
+        this.buckets = buckets;
+        this.unindexed = unindexed;
+    }
+
+    /**
+     * @param storage the values in resolution order. They may change concurrently, so the index is built from a snapshot.
+     * @param version the version of the KeyValues the values were taken from
+     */
+    static LookupIndex build(final Iterable<DomainSpecificValue> storage, final int version) {
+        List<DomainSpecificValue> values = new ArrayList<>();
+        for (DomainSpecificValue value : storage) {
+            values.add(value);
+        }
+        Map<String, List<DomainSpecificValue>> bucketLists = new HashMap<>();
+        for (DomainSpecificValue value : values) {
+            String firstDomain = firstDomain(value);
+            if (firstDomain != null) {
+                bucketLists.putIfAbsent(firstDomain, new ArrayList<>());
+            }
+        }
+        List<DomainSpecificValue> unindexedList = new ArrayList<>();
+        for (DomainSpecificValue value : values) {
+            String firstDomain = firstDomain(value);
+            if (firstDomain == null) {
+                unindexedList.add(value);
+                for (List<DomainSpecificValue> bucket : bucketLists.values()) {
+                    bucket.add(value);
+                }
+            } else {
+                bucketLists.get(firstDomain).add(value);
+            }
+        }
+        Map<String, DomainSpecificValue[]> buckets = new HashMap<>(bucketLists.size() * 2);
+        for (Map.Entry<String, List<DomainSpecificValue>> entry : bucketLists.entrySet()) {
+            buckets.put(entry.getKey(), entry.getValue().toArray(EMPTY));
+        }
+        return new LookupIndex(version, buckets, unindexedList.toArray(EMPTY));
+    }
+
+    /**
+     * @return the value of the first domain of the pattern, or null if the pattern does not compare the first domain
+     * exactly, because it is missing or contains a wildcard
+     */
+    static String firstDomain(final DomainSpecificValue value) {
+        String pattern = value.getPatternStr();
+        int end = pattern.indexOf('|');
+        if (end < 0) {
+            return null;
+        }
+        String firstDomain = pattern.substring(0, end);
+        return firstDomain.indexOf('*') >= 0 ? null : firstDomain;
+    }
+
+    /**
+     * @return the values, which can match a lookup with the given value of the first domain, in resolution order
+     */
+    DomainSpecificValue[] candidates(final String firstDomainValue) {
+        DomainSpecificValue[] bucket = buckets.get(firstDomainValue);
+        return bucket == null ? unindexed : bucket;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    int getBucketCount() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+/**
+ * Cost-based choice of the {@link LookupPlan} of a key. The cost of a plan is estimated in candidates compared per lookup:
+ * a linear scan compares the measured average, or half of the values before the first lookup, an indexed lookup costs
+ * a hash lookup plus half of an average bucket. The index is only chosen, when it at least halves the cost,
+ * so keys do not flip between plans on small changes.
+ * <p>
+ * Keys plan lazily on the first lookup after their values changed.
+ */
+public class LookupPlanner {
+
+    public static final int DEFAULT_MINIMUM_SIZE = 16;
+    static final double INDEX_LOOKUP_COST = 2.0;
+    static final double REQUIRED_GAIN = 0.5;
+
+    private static final LookupPlanner instance = new LookupPlanner();
+
+    private volatile boolean enabled = true;
+    private volatile int minimumSize = DEFAULT_MINIMUM_SIZE;
+
+    public static LookupPlanner getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return true, if the plan has to be decided on statistics, false if the key is too small to be indexed
+     */
+    boolean worthPlanning(final int valueCount) {
+        return enabled && valueCount >= minimumSize;
+    }
+
+    public LookupPlan choose(final KeyValuesStatistics statistics) {
+        if (!worthPlanning(statistics.getValueCount()) || statistics.getCardinality(0) < 2) {
+            return LookupPlan.LINEAR;
+        }
+        return estimateIndexedCost(statistics) < estimateLinearCost(statistics) * REQUIRED_GAIN ? LookupPlan.INDEXED : LookupPlan.LINEAR;
+    }
+
+    static double estimateLinearCost(final KeyValuesStatistics statistics) {
+        if (statistics.getPlan() == LookupPlan.LINEAR && statistics.getAverageCandidatesScanned() > 0) {
+            return statistics.getAverageCandidatesScanned();
+        }
+        return (statistics.getValueCount() + 1) / 2.0;
+    }
+
+    static double estimateIndexedCost(final KeyValuesStatistics statistics) {
+        int indexed = statistics.getValueCount() - statistics.getUnindexedCount();
+        double averageBucketSize = (double)indexed / Math.max(1, statistics.getCardinality(0)) + statistics.getUnindexedCount();
+        return INDEX_LOOKUP_COST + (averageBucketSize + 1) / 2.0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Disabling the planner makes all keys use linear scans after their next change or {@link KeyValues#replan()}.
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMinimumSize() {
+        return minimumSize;
+    }
+
+    /**
+     * @param minimumSize the number of values a key needs at least to be considered for an index
+     */
+    public void setMinimumSize(final int minimumSize) {
+        this.minimumSize = minimumSize;
+    }
+
+    @Override
+    public String toString() {
+        return "LookupPlanner{enabled=" + enabled + ", minimumSize=" + minimumSize + '}';
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Caches the resolved values of a Roperty for a fixed DomainResolver, e.g. for a partner site or a batch job running
+ * under a fixed locale. Repeated lookups of a key are a single hash lookup. Cached values are invalidated through
+ * {@link RopertyChangeListener} events, so the resolver must always resolve the same domain values and changeSets.
+ * <p>
+ * Values are materialized lazily on first access or eagerly in parallel via {@link #materializeAll()}.
+ * The view has to be closed to stop listening for changes.
+ */
+public class MaterializedView implements RopertyChangeListener, AutoCloseable {
+
+    private static final Object NO_VALUE = new Object();
+
+    private final RopertyImpl roperty;
+    private final DomainResolver resolver;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    public MaterializedView(final RopertyImpl roperty, final DomainResolver resolver) {
+        Objects.requireNonNull(roperty, "\"roperty\" must not be null");
+        Objects.requireNonNull(resolver, "\"resolver\" must not be null");
+        this.roperty = roperty;
+        this.resolver = resolver;
+        roperty.addChangeListener(this);
+    }
+
+    public <T> T get(final String key) {
+        return get(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(final String key, final T defaultValue) {
+        Ensure.notEmpty(key, "key");
+        String trimmedKey = key.trim();
+        Object value = values.get(trimmedKey);
+        if (value == null) {
+            value = values.computeIfAbsent(trimmedKey, this::resolve);
+        }
+        return value == NO_VALUE ? defaultValue : (T)value;
+    }
+
+    private Object resolve(final String key) {
+        Object value = roperty.get(key, null, resolver);
+        return value == null ? NO_VALUE : value;
+    }
+
+    /**
+     * Resolves the values of all keys currently held in memory in parallel.
+     */
+    public void materializeAll() {
+        List<String> keys = new ArrayList<>(roperty.getValuesStore().snapshot().keySet());
+        keys.parallelStream().forEach(key -> values.computeIfAbsent(key, this::resolve));
+    }
+
+    /**
+     * @return the number of materialized keys
+     */
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public void keyChanged(final String key) {
+        values.remove(key);
+    }
+
+    @Override
+    public void allKeysChanged() {
+        values.clear();
+    }
+
+    public DomainResolver getResolver() {
+        return resolver;
+    }
+
+    @Override
+    public void close() {
+        roperty.removeChangeListener(this);
+        values.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "MaterializedView{resolver=" + resolver + ", size=" + size() + '}';
+    }
+}
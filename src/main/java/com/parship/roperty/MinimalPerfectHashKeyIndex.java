@@ -0,0 +1,162 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Minimal perfect hash over a fixed set of keys, built with the hash-and-displace method: keys are distributed into
+ * small buckets and for every bucket a displacement seed is searched, which maps all its keys to free slots.
+ * Buckets with a single key directly store their slot. A lookup computes one hash of the key and needs no probing,
+ * every key occupies exactly one of n slots.
+ */
+final class MinimalPerfectHashKeyIndex implements KeyIndex {
+
+    private static final int KEYS_PER_BUCKET = 3;
+    private static final int MAX_SEED = 1 << 20;
+    private static final int MAX_SALTS = 4;
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final String[] slotKeys;
+    private final int[] slotPositions;
+    private final int[] seeds;
+    private final long salt;
+
+    MinimalPerfectHashKeyIndex(final String[] keys) {
+        int n = keys.length;
+        slotKeys = new String[n];
+        slotPositions = new int[n];
+        seeds = new int[Math.max(1, (n + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET)];
+        long builtSalt = -1;
+        for (int attempt = 0; attempt < MAX_SALTS && builtSalt < 0; attempt++) {
+            if (build(keys, attempt)) {
+                builtSalt = attempt;
+            }
+        }
+        if (builtSalt < 0) {
+            throw new IllegalStateException("Could not build a perfect hash for " + n + " keys");
+        }
+        salt = builtSalt;
+    }
+
+    private boolean build(final String[] keys, final long salt) {
+        int n = keys.length;
+        Arrays.fill(slotKeys, null);
+        Arrays.fill(seeds, 0);
+        long[] hashes = new long[n];
+        List<List<Integer>> buckets = new ArrayList<>(seeds.length);
+        for (int i = 0; i < seeds.length; i++) {
+            buckets.add(new ArrayList<>(KEYS_PER_BUCKET));
+        }
+        for (int position = 0; position < n; position++) {
+            hashes[position] = hash(keys[position], salt);
+            buckets.get(range(hashes[position], seeds.length)).add(position);
+        }
+        List<Integer> bucketOrder = new ArrayList<>(seeds.length);
+        for (int i = 0; i < seeds.length; i++) {
+            bucketOrder.add(i);
+        }
+        bucketOrder.sort((b1, b2) -> buckets.get(b2).size() - buckets.get(b1).size());
+
+        boolean[] taken = new boolean[n];
+        int[] slots = new int[n];
+        int freeSlot = 0;
+        for (int bucket : bucketOrder) {
+            List<Integer> positions = buckets.get(bucket);
+            if (positions.size() > 1) {
+                int seed = findSeed(positions, hashes, taken, slots);
+                if (seed < 0) {
+                    return false;
+                }
+                seeds[bucket] = seed;
+                for (int i = 0; i < positions.size(); i++) {
+                    taken[slots[i]] = true;
+                    slotKeys[slots[i]] = keys[positions.get(i)];
+                    slotPositions[slots[i]] = positions.get(i);
+                }
+            } else if (positions.size() == 1) {
+                while (taken[freeSlot]) {
+                    freeSlot++;
+                }
+                taken[freeSlot] = true;
+                seeds[bucket] = -freeSlot - 1;
+                slotKeys[freeSlot] = keys[positions.get(0)];
+                slotPositions[freeSlot] = positions.get(0);
+            }
+        }
+        return true;
+    }
+
+    private static int findSeed(final List<Integer> positions, final long[] hashes, final boolean[] taken, final int[] slots) {
+        int n = taken.length;
+        for (int seed = 1; seed < MAX_SEED; seed++) {
+            boolean free = true;
+            for (int i = 0; i < positions.size() && free; i++) {
+                int slot = slot(hashes[positions.get(i)], seed, n);
+                free = !taken[slot];
+                for (int j = 0; j < i && free; j++) {
+                    free = slots[j] != slot;
+                }
+                slots[i] = slot;
+            }
+            if (free) {
+                return seed;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOf(final String key) {
+        int n = slotKeys.length;
+        if (n == 0) {
+            return -1;
+        }
+        long hash = hash(key, salt);
+        int seed = seeds[range(hash, seeds.length)];
+        int slot = seed < 0 ? -seed - 1 : slot(hash, seed, n);
+        return key.equals(slotKeys[slot]) ? slotPositions[slot] : -1;
+    }
+
+    private static int slot(final long hash, final int seed, final int n) {
+        return range(mix(hash ^ seed * SEED_MULTIPLIER), n);
+    }
+
+    private static int range(final long hash, final int n) {
+        return (int)(((hash >>> 32) * n) >>> 32);
+    }
+
+    private static long hash(final String key, final long salt) {
+        long hash = 0xCBF29CE484222325L ^ salt;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+
+/**
+ * Open addressing hash table with linear probing over the key column, kept in two flat arrays.
+ */
+final class OpenAddressingKeyIndex implements KeyIndex {
+
+    private final String[] slotKeys;
+    private final int[] slotPositions;
+    private final int mask;
+
+    OpenAddressingKeyIndex(final String[] keys) {
+        int capacity = Integer.highestOneBit(Math.max(2, keys.length * 2 - 1)) << 1;
+        slotKeys = new String[capacity];
+        slotPositions = new int[capacity];
+        mask = capacity - 1;
+        for (int position = 0; position < keys.length; position++) {
+            int slot = spread(keys[position].hashCode()) & mask;
+            while (slotKeys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = keys[position];
+            slotPositions[slot] = position;
+        }
+    }
+
+    @Override
+    public int indexOf(final String key) {
+        int slot = spread(key.hashCode()) & mask;
+        String slotKey;
+        while ((slotKey = slotKeys[slot]) != null) {
+            if (slotKey.equals(key)) {
+                return slotPositions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
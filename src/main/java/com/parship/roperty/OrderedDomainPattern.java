@@ -1,19 +1,61 @@
 package com.parship.roperty;
 
+import java.util.Objects;
+
+/**
+ * A domain pattern like "de|DE|" together with its resolution order and the Matcher used to match it against
+ * resolved domain strings. Instances are immutable and are shared via the {@link DomainPatternPool}.
+ */
 public class OrderedDomainPattern {
 	private final String domainPattern;
-	private final int order;
+	private final long order;
+	private final Matcher matcher;
+	private final int depth;
 
-	public OrderedDomainPattern(final String domainPattern, final int order) {
+	public OrderedDomainPattern(final String domainPattern, final long order) {
+		Objects.requireNonNull(domainPattern, "\"domainPattern\" must not be null");
 		this.domainPattern = domainPattern;
 		this.order = order;
+		this.matcher = createMatcher(domainPattern);
+		this.depth = countDomains(domainPattern);
+	}
+
+	private static Matcher createMatcher(final String domainPattern) {
+		if (domainPattern.contains("*")) {
+			return new RegexMatcher(domainPattern.replaceAll("\\|", "\\\\|").replaceAll("\\*", "[^|]*") + ".*");
+		}
+		return new StringPrefixMatcher(domainPattern);
+	}
+
+	private static int countDomains(final String domainPattern) {
+		int count = 0;
+		for (int i = 0; i < domainPattern.length(); i++) {
+			if (domainPattern.charAt(i) == '|') {
+				count++;
+			}
+		}
+		return count;
 	}
 
 	public String getDomainPattern() {
 		return domainPattern;
 	}
 
-	public int getOrder() {
+	/**
+	 * @return the precedence of the pattern as bitmask with one bit per domain, that is not a wildcard
+	 */
+	public long getOrder() {
 		return order;
 	}
+
+	/**
+	 * @return the number of domains of the pattern, which is the deepest domain position it refers to
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	public Matcher getMatcher() {
+		return matcher;
+	}
 }
@@ -0,0 +1,42 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+
+/**
+ * Is notified by {@link RopertyImpl} after values were changed through the Roperty API.
+ * Changes made directly on KeyValues returned by Roperty are not reported.
+ */
+public interface RopertyChangeListener {
+
+    /**
+     * Values of the key were set or removed.
+     */
+    void keyChanged(String key);
+
+    /**
+     * Any value may have changed, e.g. after a reload, replacing all values or adding domains.
+     */
+    void allKeysChanged();
+
+    /**
+     * The Roperty was reloaded from its persistence. Called after {@link #allKeysChanged()}.
+     */
+    default void reloaded() {
+    }
+}
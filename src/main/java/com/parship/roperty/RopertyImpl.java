@@ -20,10 +20,12 @@ package com.parship.roperty;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.parship.roperty.jmx.RopertyManager;
@@ -41,11 +43,18 @@ import org.slf4j.LoggerFactory;
  */
 public class RopertyImpl implements Roperty {
 
+	public static final String ACCESS_TRACKING_PROPERTY = "roperty.accessTracking.enabled";
 	private static final Logger LOGGER = LoggerFactory.getLogger(RopertyImpl.class);
 	private volatile ValuesStore valuesStore;
-	private List<String> domains;
+	private volatile DomainSchema domainSchema = DomainSchema.EMPTY;
 	private Persistence persistence;
-	private final Map<String, Collection<String>> changeSets = new HashMap<>();
+	private final Map<String, Collection<String>> changeSets = new ConcurrentHashMap<>();
+	private final List<RopertyChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+	private final Map<String, CompletableFuture<Void>> definitions = new ConcurrentHashMap<>();
+	private final RopertyMetrics metrics = new RopertyMetrics();
+	private final HotspotTracker hotspotTracker = new HotspotTracker();
+	private volatile RopertyObserver observer = RopertyObserver.NOOP;
+	private volatile boolean accessTracking = Boolean.getBoolean(ACCESS_TRACKING_PROPERTY);
 
 	public RopertyImpl(final Persistence persistence, final DomainInitializer domainInitializer, final FactoryProvider factoryProvider) {
 		this(persistence, domainInitializer, factoryProvider.getKeyValuesFactory(), factoryProvider.getDomainSpecificValueFactory());
@@ -54,7 +63,10 @@ public class RopertyImpl implements Roperty {
 	public RopertyImpl(final Persistence persistence, final DomainInitializer domainInitializer, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory
 		domainSpecificValueFactory) {
         Objects.requireNonNull(domainInitializer, "\"domainInitializer\" must not be null");
-        domains = domainInitializer.getInitialDomains();
+        List<String> initialDomains = domainInitializer.getInitialDomains();
+        if (initialDomains != null) {
+            domainSchema = DomainSchema.of(initialDomains);
+        }
 		initFromPersistence(persistence, keyValuesFactory, domainSpecificValueFactory);
 	}
 
@@ -72,7 +84,6 @@ public class RopertyImpl implements Roperty {
 	}
 
 	private void initDomains(final String[] domains) {
-		this.domains = new CopyOnWriteArrayList<>();
 		addDomains(domains);
 	}
 
@@ -89,7 +100,14 @@ public class RopertyImpl implements Roperty {
 		valuesStore.setKeyValuesFactory(keyValuesFactory);
 		valuesStore.setDomainSpecificValueFactory(domainSpecificValueFactory);
 		valuesStore.setPersistence(persistence);
-		valuesStore.setAllValues(persistence.loadAll(keyValuesFactory, domainSpecificValueFactory));
+		valuesStore.setMetrics(metrics);
+		valuesStore.setObserver(observer);
+		long start = System.nanoTime();
+		Map<String, KeyValues> loadedValues = persistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+		long duration = System.nanoTime() - start;
+		metrics.recordLoadAll(duration);
+		observer.persistenceCalled(RopertyObserver.PersistenceOperation.LOAD_ALL, null, duration);
+		valuesStore.setAllValues(loadedValues);
 		RopertyManager.getInstance().add(this);
 	}
 
@@ -100,7 +118,6 @@ public class RopertyImpl implements Roperty {
 	}
 
 	public RopertyImpl() {
-        domains = new CopyOnWriteArrayList<>();
 		initWithoutPersistence();
 		RopertyManager.getInstance().add(this);
 	}
@@ -109,6 +126,8 @@ public class RopertyImpl implements Roperty {
         valuesStore = new ValuesStore();
 		valuesStore.setKeyValuesFactory(new DefaultKeyValuesFactory());
 		valuesStore.setDomainSpecificValueFactory(createDomainSpecificValueFactory());
+		valuesStore.setMetrics(metrics);
+		valuesStore.setObserver(observer);
 	}
 
 	private static DomainSpecificValueFactory createDomainSpecificValueFactory() {
@@ -120,18 +139,29 @@ public class RopertyImpl implements Roperty {
 	 */
 	@Override
 	public <T> T get(final String key, final T defaultValue, DomainResolver resolver) {
+		final long start = metrics.start();
 		final String trimmedKey = trimKey(key);
+		final DomainSchema schema = domainSchema;
+		final RopertyObserver currentObserver = observer;
+		currentObserver.lookupStarted(trimmedKey);
 		KeyValues keyValues = valuesStore.getKeyValuesFromMapOrPersistence(trimmedKey);
-		T result;
-		if (keyValues == null) {
-			result = defaultValue;
-		} else {
-			result = keyValues.get(domains, defaultValue, resolver);
+		DomainSpecificValue winner = null;
+		if (keyValues != null) {
+			winner = keyValues.find(schema, resolver, trimmedKey, currentObserver);
+			if (hotspotTracker.sample()) {
+				hotspotTracker.record(trimmedKey, winner, schema, resolver);
+			}
+			if (accessTracking) {
+				keyValues.recordAccess(System.currentTimeMillis());
+			}
 		}
+		T result = winner == null ? defaultValue : (T)winner.getValue();
+		currentObserver.lookupFinished(trimmedKey, winner);
+		metrics.recordGet(start);
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("Getting value for key: '{}' with given default: '{}'. Returning value: '{}'", trimmedKey, defaultValue, result);
 			StringBuilder builder = new StringBuilder("DomainValues: ");
-			for (String domain : domains) {
+			for (String domain : schema) {
 				builder.append(domain).append(" => ").append(resolver.getDomainValue(domain)).append("; ");
 			}
 			LOGGER.debug(builder.toString());
@@ -160,8 +190,11 @@ public class RopertyImpl implements Roperty {
 		return getOrDefine(key, defaultValue, resolver, null);
 	}
 
-	/* (non-Javadoc)
-	 * @see com.parship.roperty.Roperty#getOrDefine(java.lang.String, T, com.parship.roperty.DomainResolver, java.lang.String)
+	/**
+	 * Concurrent definitions of the same key are coalesced, so the default is stored only once. The first caller
+	 * defines the value in memory and stores it afterwards. The other callers only wait until the value is defined
+	 * in memory and then resolve it with their own resolver. When the first caller fails to define the value, the
+	 * waiting callers get a CompletionException with the cause.
 	 */
 	@Override
 	public <T> T getOrDefine(final String key, final T defaultValue, DomainResolver resolver, String description) {
@@ -169,64 +202,121 @@ public class RopertyImpl implements Roperty {
 		if (value != null) {
 			return value;
 		}
-		set(key, defaultValue, description);
-		return defaultValue;
+		final String trimmedKey = trimKey(key);
+		CompletableFuture<Void> definition = new CompletableFuture<>();
+		CompletableFuture<Void> runningDefinition = definitions.putIfAbsent(trimmedKey, definition);
+		if (runningDefinition != null) {
+			runningDefinition.join();
+			value = resolveInMemory(trimmedKey, resolver);
+			return value != null ? value : defaultValue;
+		}
+		try {
+			value = resolveInMemory(trimmedKey, resolver);
+			if (value != null) {
+				definition.complete(null);
+				return value;
+			}
+			final long start = metrics.start();
+			LOGGER.debug("Defining value: '{}' for key: '{}'.", defaultValue, trimmedKey);
+			KeyValues keyValues = putInMemory(trimmedKey, defaultValue, description);
+			definition.complete(null);
+			store(trimmedKey, keyValues);
+			metrics.recordSet(start);
+			return defaultValue;
+		} catch (RuntimeException | Error e) {
+			definition.completeExceptionally(e);
+			throw e;
+		} finally {
+			definitions.remove(trimmedKey, definition);
+		}
 	}
 
-	@Override
-	public Roperty addDomains(final String... domains) {
-        Objects.requireNonNull(domains, "\"domains\" must not be null");
-        for (String domain : domains) {
-			Ensure.notEmpty(domain, "domain");
-			this.domains.add(domain);
+	/**
+	 * Resolves a key held in memory without recording metrics or notifying the observer, so the re-checks of
+	 * getOrDefine count as part of the one get they follow.
+	 */
+	private <T> T resolveInMemory(final String trimmedKey, final DomainResolver resolver) {
+		KeyValues keyValues = valuesStore.getValuesFor(trimmedKey);
+		if (keyValues == null) {
+			return null;
 		}
+		DomainSpecificValue winner = keyValues.find(domainSchema, resolver, trimmedKey, RopertyObserver.NOOP);
+		return winner == null ? null : (T)winner.getValue();
+	}
+
+	/**
+	 * Publishes a new version of the DomainSchema with the domains appended.
+	 */
+	@Override
+	public synchronized Roperty addDomains(final String... domains) {
+		domainSchema = domainSchema.withDomains(domains);
+		fireAllKeysChanged();
 		return this;
 	}
 
 	@Override
 	public void set(final String key, final Object value, final String description, final String... domains) {
+		final long start = metrics.start();
 		final String trimmedKey = trimKey(key);
 		LOGGER.debug("Storing value: '{}' for key: '{}' with given domains: '{}'.", value, trimmedKey, domains);
+		KeyValues keyValues = putInMemory(trimmedKey, value, description, domains);
+		store(trimmedKey, keyValues);
+		metrics.recordSet(start);
+	}
+
+	private KeyValues putInMemory(final String trimmedKey, final Object value, final String description, final String... domains) {
 		KeyValues keyValues = valuesStore.getOrCreateKeyValues(trimmedKey, description);
 		keyValues.put(value, domains);
-		store(trimmedKey, keyValues);
+		fireKeyChanged(trimmedKey);
+		return keyValues;
 	}
 
 	@Override
 	public void setWithChangeSet(final String key, final Object value, final String description, String changeSet, final String... domains) {
+		final long start = metrics.start();
 		final String trimmedKey = trimKey(key);
 		LOGGER.debug("Storing value: '{}' for key: '{}' for change set: '{}' with given domains: '{}'.", value, trimmedKey, changeSet, domains);
 		KeyValues keyValues = valuesStore.getOrCreateKeyValues(trimmedKey, description);
 		keyValues.putWithChangeSet(changeSet, value, domains);
-		getChangeSetKeys(changeSet).add(trimmedKey);
+		fireKeyChanged(trimmedKey);
+		if (changeSet != null) {
+			getChangeSetKeys(changeSet).add(trimmedKey);
+		}
 		store(trimmedKey, keyValues, changeSet);
+		metrics.recordSet(start);
 	}
 
-	private synchronized Collection<String> getChangeSetKeys(final String changeSet) {
-		return changeSets.computeIfAbsent(changeSet, k -> new ArrayList<>());
+	private Collection<String> getChangeSetKeys(final String changeSet) {
+		return changeSets.computeIfAbsent(changeSet, k -> ConcurrentHashMap.newKeySet());
 	}
 
 	private void store(final String key, final KeyValues keyValues) {
-		if (persistence != null) {
-			persistence.store(key, keyValues, "");
-		}
+		store(key, keyValues, "");
 	}
 
 	private void store(final String key, final KeyValues keyValues, final String changeSet) {
 		if (persistence != null) {
+			long start = System.nanoTime();
 			persistence.store(key, keyValues, changeSet);
+			long duration = System.nanoTime() - start;
+			metrics.recordStore(duration);
+			observer.persistenceCalled(RopertyObserver.PersistenceOperation.STORE, key, duration);
 		}
 	}
 
 	private void remove(final String key, final KeyValues keyValues) {
 		if (persistence != null) {
+			long start = System.nanoTime();
 			persistence.remove(key, keyValues, null);
+			observer.persistenceCalled(RopertyObserver.PersistenceOperation.REMOVE, key, System.nanoTime() - start);
 		}
 	}
 
 	private void remove(final String key, final DomainSpecificValue domainSpecificValue, final String changeSet) {
 		if (persistence != null) {
+			long start = System.nanoTime();
 			persistence.remove(key, domainSpecificValue, changeSet);
+			observer.persistenceCalled(RopertyObserver.PersistenceOperation.REMOVE, key, System.nanoTime() - start);
 		}
 	}
 
@@ -236,6 +326,7 @@ public class RopertyImpl implements Roperty {
         synchronized (keyValuesMap) {
 			valuesStore.setAllValues(keyValuesMap);
 		}
+		fireAllKeysChanged();
 	}
 
 	public void setPersistence(final Persistence persistence) {
@@ -247,17 +338,158 @@ public class RopertyImpl implements Roperty {
 
 	@Override
 	public void reload() {
+		RopertyObserver currentObserver = observer;
+		currentObserver.reloadStarted();
+		long start = System.nanoTime();
 		valuesStore.reload();
+		fireAllKeysChanged();
+		fireReloaded();
+		long duration = System.nanoTime() - start;
+		metrics.recordReloadDuration(duration);
+		currentObserver.reloadFinished(duration);
+	}
+
+	/**
+	 * Installs an observer of the resolution path, e.g. a {@link SamplingTracer}.
+	 *
+	 * @param observer the observer, null to remove the current observer
+	 */
+	public void setObserver(final RopertyObserver observer) {
+		this.observer = observer == null ? RopertyObserver.NOOP : observer;
+		valuesStore.setObserver(this.observer);
+	}
+
+	public RopertyObserver getObserver() {
+		return observer;
+	}
+
+	public void addChangeListener(final RopertyChangeListener changeListener) {
+		Objects.requireNonNull(changeListener, "\"changeListener\" must not be null");
+		changeListeners.add(changeListener);
+	}
+
+	public void removeChangeListener(final RopertyChangeListener changeListener) {
+		changeListeners.remove(changeListener);
+	}
+
+	private void fireKeyChanged(final String key) {
+		for (RopertyChangeListener changeListener : changeListeners) {
+			changeListener.keyChanged(key);
+		}
+	}
+
+	private void fireAllKeysChanged() {
+		for (RopertyChangeListener changeListener : changeListeners) {
+			changeListener.allKeysChanged();
+		}
+	}
+
+	private void fireReloaded() {
+		for (RopertyChangeListener changeListener : changeListeners) {
+			changeListener.reloaded();
+		}
+	}
+
+	/**
+	 * Creates an immutable view of the current values for nodes, which only read and reload properties.
+	 * The view does not reflect later changes to this Roperty, but every reload of this Roperty, including
+	 * {@link FrozenRoperty#reload()}, swaps in a new frozen generation through a {@link RopertyChangeListener}.
+	 */
+	public FrozenRoperty freeze() {
+		return new FrozenRoperty(this);
+	}
+
+	public RopertyMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Enables the metrics of this Roperty and registers them as MBean with the given name.
+	 */
+	public void enableMetrics(final String name) {
+		metrics.setEnabled(true);
+		RopertyManager.getInstance().registerMetrics(name, metrics);
+	}
+
+	public HotspotTracker getHotspotTracker() {
+		return hotspotTracker;
+	}
+
+	/**
+	 * Enables tracking the hottest keys, patterns and domain vectors of this Roperty and registers the tracker
+	 * as MBean with the given name.
+	 */
+	public void enableHotspotTracking(final String name) {
+		hotspotTracker.setEnabled(true);
+		RopertyManager.getInstance().registerHotspots(name, hotspotTracker);
+	}
+
+	/**
+	 * Switches recording the time of the last access of every key on or off.
+	 * Access tracking is off by default and enabled from the start with the system property "roperty.accessTracking.enabled".
+	 */
+	public void setAccessTracking(final boolean accessTracking) {
+		this.accessTracking = accessTracking;
+	}
+
+	public boolean isAccessTracking() {
+		return accessTracking;
+	}
+
+	/**
+	 * @return the sorted keys held in memory, which were never read since access tracking was enabled
+	 * @throws IllegalStateException if access tracking is not enabled
+	 */
+	public List<String> findUnusedKeys() {
+		if (!accessTracking) {
+			throw new IllegalStateException("Access tracking must be enabled to find unused keys");
+		}
+		List<String> unusedKeys = new ArrayList<>();
+		for (Map.Entry<String, KeyValues> entry : valuesStore.snapshot().entrySet()) {
+			if (entry.getValue().getLastAccess() == 0) {
+				unusedKeys.add(entry.getKey());
+			}
+		}
+		Collections.sort(unusedKeys);
+		return unusedKeys;
+	}
+
+	/**
+	 * @param idleMillis the minimum time since the last access
+	 * @return the sorted keys held in memory, which were not read for at least idleMillis, including keys never read
+	 * @throws IllegalStateException if access tracking is not enabled
+	 */
+	public List<String> findColdKeys(final long idleMillis) {
+		if (!accessTracking) {
+			throw new IllegalStateException("Access tracking must be enabled to find cold keys");
+		}
+		long threshold = System.currentTimeMillis() - idleMillis;
+		List<String> coldKeys = new ArrayList<>();
+		for (Map.Entry<String, KeyValues> entry : valuesStore.snapshot().entrySet()) {
+			if (entry.getValue().getLastAccess() <= threshold) {
+				coldKeys.add(entry.getKey());
+			}
+		}
+		Collections.sort(coldKeys);
+		return coldKeys;
+	}
+
+	public DomainSchema getDomainSchema() {
+		return domainSchema;
+	}
+
+	ValuesStore getValuesStore() {
+		return valuesStore;
 	}
 
 	@Override
 	public String toString() {
-		return "Roperty{domains=" + domains + '}';
+		return "Roperty{domains=" + domainSchema + '}';
 	}
 
 	@Override
 	public StringBuilder dump() {
-		StringBuilder builder = new StringBuilder("Roperty{domains=").append(domains);
+		StringBuilder builder = new StringBuilder("Roperty{domains=").append(domainSchema);
 		builder.append(valuesStore.dump());
 		builder.append("\n}");
 		return builder;
@@ -266,7 +498,7 @@ public class RopertyImpl implements Roperty {
 	@Override
 	public void dump(final PrintStream out) {
 		out.print("Roperty{domains=");
-		out.print(domains);
+		out.print(domainSchema);
 		valuesStore.dump(out);
 		out.println("\n}");
 	}
@@ -295,7 +527,9 @@ public class RopertyImpl implements Roperty {
 		final String trimmedKey = trimKey(key);
 		KeyValues keyValues = valuesStore.getKeyValuesFromMapOrPersistence(trimmedKey);
 		if (keyValues != null) {
-			remove(trimmedKey, keyValues.remove(changeSet, domainValues), changeSet);
+			DomainSpecificValue removedValue = keyValues.remove(changeSet, domainValues);
+			fireKeyChanged(trimmedKey);
+			remove(trimmedKey, removedValue, changeSet);
 		}
 	}
 
@@ -307,7 +541,9 @@ public class RopertyImpl implements Roperty {
 	@Override
 	public void removeKey(final String key) {
 		final String trimmedKey = trimKey(key);
-		remove(trimmedKey, valuesStore.remove(trimmedKey));
+		KeyValues removedKeyValues = valuesStore.remove(trimmedKey);
+		fireKeyChanged(trimmedKey);
+		remove(trimmedKey, removedKeyValues);
 	}
 
 	@Override
@@ -321,7 +557,9 @@ public class RopertyImpl implements Roperty {
         for (String key : changeSetKeyValues) {
 			KeyValues keyValues = valuesStore.getKeyValuesFromMapOrPersistence(key);
 			if (keyValues != null) {
-				for (DomainSpecificValue value : keyValues.removeChangeSet(changeSet)) {
+				Collection<DomainSpecificValue> removedValues = keyValues.removeChangeSet(changeSet);
+				fireKeyChanged(key);
+				for (DomainSpecificValue value : removedValues) {
 					remove(key, value, changeSet);
 				}
 			}
@@ -0,0 +1,215 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counters and latency histograms for the operations of a single RopertyImpl and its ValuesStore.
+ * Disabled metrics cost a single volatile read per operation: {@link #start()} returns 0 and recording is skipped.
+ * Metrics are disabled by default and enabled from the start with the system property "roperty.metrics.enabled".
+ */
+public final class RopertyMetrics implements RopertyMetricsMBean {
+
+    public static final String ENABLED_PROPERTY = "roperty.metrics.enabled";
+
+    private volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    private final LongAdder gets = new LongAdder();
+    private final LongAdder sets = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LatencyHistogram getLatency = new LatencyHistogram();
+    private final LatencyHistogram setLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LatencyHistogram storeLatency = new LatencyHistogram();
+    private final LatencyHistogram loadAllLatency = new LatencyHistogram();
+    private final LatencyHistogram reloadLatency = new LatencyHistogram();
+    private final LatencyHistogram reloadDuration = new LatencyHistogram();
+
+    /**
+     * @return the start time of a measured operation, or 0 if metrics are disabled
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void recordGet(final long start) {
+        if (start != 0) {
+            gets.increment();
+            getLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    void recordSet(final long start) {
+        if (start != 0) {
+            sets.increment();
+            setLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    void recordCacheMiss() {
+        if (enabled) {
+            cacheMisses.increment();
+        }
+    }
+
+    void recordLoad(final long durationNanos) {
+        record(loadLatency, durationNanos);
+    }
+
+    void recordStore(final long durationNanos) {
+        record(storeLatency, durationNanos);
+    }
+
+    void recordLoadAll(final long durationNanos) {
+        record(loadAllLatency, durationNanos);
+    }
+
+    void recordReload(final long durationNanos) {
+        record(reloadLatency, durationNanos);
+    }
+
+    void recordReloadDuration(final long durationNanos) {
+        record(reloadDuration, durationNanos);
+    }
+
+    /**
+     * Persistence calls and reloads are timed anyway, as they are reported to the RopertyObserver, so they are recorded by duration.
+     */
+    private void record(final LatencyHistogram histogram, final long durationNanos) {
+        if (enabled) {
+            histogram.record(durationNanos);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getGets() {
+        return gets.sum();
+    }
+
+    @Override
+    public long getSets() {
+        return sets.sum();
+    }
+
+    /**
+     * @return the number of lookups of keys not held in memory, which were asked from the Persistence
+     */
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public LatencyHistogram getGetHistogram() {
+        return getLatency;
+    }
+
+    public LatencyHistogram getSetHistogram() {
+        return setLatency;
+    }
+
+    public LatencyHistogram getLoadHistogram() {
+        return loadLatency;
+    }
+
+    public LatencyHistogram getStoreHistogram() {
+        return storeLatency;
+    }
+
+    public LatencyHistogram getLoadAllHistogram() {
+        return loadAllLatency;
+    }
+
+    public LatencyHistogram getReloadHistogram() {
+        return reloadLatency;
+    }
+
+    public LatencyHistogram getReloadDurationHistogram() {
+        return reloadDuration;
+    }
+
+    @Override
+    public String getGetLatency() {
+        return getLatency.toString();
+    }
+
+    @Override
+    public String getSetLatency() {
+        return setLatency.toString();
+    }
+
+    @Override
+    public String getLoadLatency() {
+        return loadLatency.toString();
+    }
+
+    @Override
+    public String getStoreLatency() {
+        return storeLatency.toString();
+    }
+
+    @Override
+    public String getLoadAllLatency() {
+        return loadAllLatency.toString();
+    }
+
+    /**
+     * @return the latency of Persistence.reload
+     */
+    @Override
+    public String getReloadLatency() {
+        return reloadLatency.toString();
+    }
+
+    /**
+     * @return the duration of a complete reload, including notifying change listeners
+     */
+    @Override
+    public String getReloadDuration() {
+        return reloadDuration.toString();
+    }
+
+    @Override
+    public void reset() {
+        gets.reset();
+        sets.reset();
+        cacheMisses.reset();
+        getLatency.reset();
+        setLatency.reset();
+        loadLatency.reset();
+        storeLatency.reset();
+        loadAllLatency.reset();
+        reloadLatency.reset();
+        reloadDuration.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "RopertyMetrics{enabled=" + enabled + ", gets=" + getGets() + ", sets=" + getSets() + ", cacheMisses=" + getCacheMisses() + '}';
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+/**
+ * Callbacks from the resolution path of a RopertyImpl for tracing and profiling.
+ * All methods default to doing nothing, so implementations only override what they need. Callbacks are invoked
+ * synchronously on the calling thread and must be cheap and must not throw.
+ *
+ * @see RopertyImpl#setObserver(RopertyObserver)
+ * @see SamplingTracer
+ */
+public interface RopertyObserver {
+
+    /**
+     * Observer doing nothing. As long as no other observer is installed, the calls are inlined and eliminated by the JIT.
+     */
+    RopertyObserver NOOP = new RopertyObserver() {
+    };
+
+    enum PersistenceOperation {
+        LOAD, LOAD_ALL, STORE, REMOVE, RELOAD
+    }
+
+    default void lookupStarted(String key) {
+    }
+
+    /**
+     * Called for every candidate value of the key, which is compared with the domain values, in the order of evaluation.
+     */
+    default void candidateEvaluated(String key, DomainSpecificValue candidate, boolean matched) {
+    }
+
+    /**
+     * @param winner the value returned by the lookup, null if the key is unknown or no value matched
+     */
+    default void lookupFinished(String key, DomainSpecificValue winner) {
+    }
+
+    /**
+     * The values of the key were held in memory.
+     */
+    default void cacheHit(String key) {
+    }
+
+    /**
+     * The values of the key were not held in memory and are asked from the Persistence, if there is one.
+     */
+    default void cacheMiss(String key) {
+    }
+
+    /**
+     * @param key the key, or null for operations on all keys
+     */
+    default void persistenceCalled(PersistenceOperation operation, String key, long durationNanos) {
+    }
+
+    default void reloadStarted() {
+    }
+
+    default void reloadFinished(long durationNanos) {
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * RopertyObserver tracing one in sampleRate lookups. A trace records the key, the winning DomainSpecificValue,
+ * the number of candidates scanned, whether the key was held in memory and the duration of the lookup.
+ * The most recent traces are kept in a bounded buffer.
+ */
+public class SamplingTracer implements RopertyObserver {
+
+    public static final int DEFAULT_SAMPLE_RATE = 64;
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final int sampleMask;
+    private final int capacity;
+    private final ThreadLocal<Trace> currentTrace = new ThreadLocal<>();
+    private final Deque<Trace> traces;
+
+    public SamplingTracer() {
+        this(DEFAULT_SAMPLE_RATE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param sampleRate trace one in sampleRate lookups, rounded up to a power of two
+     * @param capacity the number of most recent traces to keep
+     */
+    public SamplingTracer(final int sampleRate, final int capacity) {
+        if (sampleRate <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("sampleRate and capacity must be positive, but were: " + sampleRate + ", " + capacity);
+        }
+        this.sampleMask = (sampleRate == 1 ? 1 : Integer.highestOneBit(sampleRate - 1) << 1) - 1;
+        this.capacity = capacity;
+        this.traces = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public void lookupStarted(final String key) {
+        if ((ThreadLocalRandom.current().nextInt() & sampleMask) == 0) {
+            currentTrace.set(new Trace(key, System.nanoTime()));
+        } else if (currentTrace.get() != null) {
+            // a traced lookup of this thread ended with an exception
+            currentTrace.remove();
+        }
+    }
+
+    @Override
+    public void cacheMiss(final String key) {
+        Trace trace = currentTrace.get();
+        if (trace != null) {
+            trace.cacheMiss = true;
+        }
+    }
+
+    @Override
+    public void candidateEvaluated(final String key, final DomainSpecificValue candidate, final boolean matched) {
+        Trace trace = currentTrace.get();
+        if (trace != null) {
+            trace.candidatesScanned++;
+        }
+    }
+
+    @Override
+    public void lookupFinished(final String key, final DomainSpecificValue winner) {
+        Trace trace = currentTrace.get();
+        if (trace != null) {
+            currentTrace.remove();
+            trace.durationNanos = System.nanoTime() - trace.startNanos;
+            trace.winner = winner;
+            add(trace);
+        }
+    }
+
+    private synchronized void add(final Trace trace) {
+        if (traces.size() == capacity) {
+            traces.removeFirst();
+        }
+        traces.addLast(trace);
+    }
+
+    /**
+     * @return the most recent traces, oldest first
+     */
+    public synchronized List<Trace> getTraces() {
+        return new ArrayList<>(traces);
+    }
+
+    public synchronized void clear() {
+        traces.clear();
+    }
+
+    public int getSampleRate() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * A single traced lookup.
+     */
+    public static final class Trace {
+        private final String key;
+        private final long startNanos;
+        private DomainSpecificValue winner;
+        private int candidatesScanned;
+        private boolean cacheMiss;
+        private long durationNanos;
+
+        Trace(final String key, final long startNanos) {
+            this.key = key;
+            this.startNanos = startNanos;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the value returned by the lookup, null if the key is unknown or no value matched
+         */
+        public DomainSpecificValue getWinner() {
+            return winner;
+        }
+
+        /**
+         * @return the number of candidates compared with the domain values, 0 for keys with only a default value
+         */
+        public int getCandidatesScanned() {
+            return candidatesScanned;
+        }
+
+        public boolean isCacheMiss() {
+            return cacheMiss;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Trace{key=" + key + ", winner=" + (winner == null ? null : '"' + winner.getPatternStr() + '"')
+                + ", candidatesScanned=" + candidatesScanned + ", cacheMiss=" + cacheMiss + ", durationNanos=" + durationNanos + '}';
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+
+/**
+ * Default storage backed by a ConcurrentSkipListSet. Well suited for values that change often.
+ */
+class SkipListDomainSpecificValueStorage implements DomainSpecificValueStorage {
+
+    private final NavigableSet<DomainSpecificValue> domainSpecificValues = new ConcurrentSkipListSet<>();
+
+    @Override
+    public DomainSpecificValue addOrChange(final DomainSpecificValue domainSpecificValue) {
+        while (true) {
+            DomainSpecificValue existing = domainSpecificValues.ceiling(domainSpecificValue);
+            if (existing != null && existing.compareTo(domainSpecificValue) == 0) {
+                existing.setValue(domainSpecificValue.getStoredValue());
+                return existing;
+            }
+            if (domainSpecificValues.add(domainSpecificValue)) {
+                return domainSpecificValue;
+            }
+            // another thread added an equal value in the meantime, so it is changed instead
+        }
+    }
+
+    @Override
+    public DomainSpecificValue removeFirst(final Predicate<DomainSpecificValue> filter) {
+        Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
+        while (iterator.hasNext()) {
+            DomainSpecificValue value = iterator.next();
+            if (filter.test(value)) {
+                iterator.remove();
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<DomainSpecificValue> removeAll(final Predicate<DomainSpecificValue> filter) {
+        Collection<DomainSpecificValue> removedValues = new ArrayList<>(domainSpecificValues.size());
+        Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
+        while (iterator.hasNext()) {
+            DomainSpecificValue value = iterator.next();
+            if (filter.test(value)) {
+                removedValues.add(value);
+                iterator.remove();
+            }
+        }
+        return removedValues;
+    }
+
+    @Override
+    public Set<DomainSpecificValue> unmodifiableSet() {
+        return Collections.unmodifiableSet(domainSpecificValues);
+    }
+
+    @Override
+    public int size() {
+        return domainSpecificValues.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return domainSpecificValues.isEmpty();
+    }
+
+    @Override
+    public Iterator<DomainSpecificValue> iterator() {
+        return domainSpecificValues.iterator();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+
+/**
+ * Copy-on-write storage keeping the values in an immutable sorted array, which is swapped on every change.
+ * Readers iterate over a contiguous snapshot of the array without any locking, writers are serialized and
+ * locate existing values by binary search. Best suited for the usual read-mostly usage of Roperty.
+ */
+class SortedArrayDomainSpecificValueStorage implements DomainSpecificValueStorage {
+
+    private static final DomainSpecificValue[] EMPTY = new DomainSpecificValue[0];
+
+    private volatile DomainSpecificValue[] domainSpecificValues = EMPTY;
+
+    @Override
+    public synchronized DomainSpecificValue addOrChange(final DomainSpecificValue domainSpecificValue) {
+        DomainSpecificValue[] current = domainSpecificValues;
+        int index = Arrays.binarySearch(current, domainSpecificValue);
+        if (index >= 0) {
+            current[index].setValue(domainSpecificValue.getStoredValue());
+            return current[index];
+        }
+        int insertionPoint = -index - 1;
+        DomainSpecificValue[] changed = new DomainSpecificValue[current.length + 1];
+        System.arraycopy(current, 0, changed, 0, insertionPoint);
+        changed[insertionPoint] = domainSpecificValue;
+        System.arraycopy(current, insertionPoint, changed, insertionPoint + 1, current.length - insertionPoint);
+        domainSpecificValues = changed;
+        return domainSpecificValue;
+    }
+
+    @Override
+    public synchronized DomainSpecificValue removeFirst(final Predicate<DomainSpecificValue> filter) {
+        DomainSpecificValue[] current = domainSpecificValues;
+        for (int i = 0; i < current.length; i++) {
+            if (filter.test(current[i])) {
+                DomainSpecificValue[] changed = new DomainSpecificValue[current.length - 1];
+                System.arraycopy(current, 0, changed, 0, i);
+                System.arraycopy(current, i + 1, changed, i, current.length - i - 1);
+                domainSpecificValues = changed;
+                return current[i];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Collection<DomainSpecificValue> removeAll(final Predicate<DomainSpecificValue> filter) {
+        DomainSpecificValue[] current = domainSpecificValues;
+        List<DomainSpecificValue> kept = new ArrayList<>(current.length);
+        List<DomainSpecificValue> removedValues = new ArrayList<>(current.length);
+        for (DomainSpecificValue value : current) {
+            if (filter.test(value)) {
+                removedValues.add(value);
+            } else {
+                kept.add(value);
+            }
+        }
+        if (!removedValues.isEmpty()) {
+            domainSpecificValues = kept.toArray(EMPTY);
+        }
+        return removedValues;
+    }
+
+    /**
+     * @return an unmodifiable view of the values at the time of the call, in resolution order. The values are
+     * unique by construction, so the view is backed by the array snapshot and does not hash them.
+     */
+    @Override
+    public Set<DomainSpecificValue> unmodifiableSet() {
+        return new SnapshotSet(domainSpecificValues);
+    }
+
+    @Override
+    public int size() {
+        return domainSpecificValues.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return domainSpecificValues.length == 0;
+    }
+
+    @Override
+    public Iterator<DomainSpecificValue> iterator() {
+        return new SnapshotIterator(domainSpecificValues);
+    }
+
+    private static final class SnapshotSet extends AbstractSet<DomainSpecificValue> {
+        private final DomainSpecificValue[] snapshot;
+
+        SnapshotSet(final DomainSpecificValue[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public Iterator<DomainSpecificValue> iterator() {
+            return new SnapshotIterator(snapshot);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.length;
+        }
+    }
+
+    private static final class SnapshotIterator implements Iterator<DomainSpecificValue> {
+        private final DomainSpecificValue[] snapshot;
+        private int index;
+
+        SnapshotIterator(final DomainSpecificValue[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < snapshot.length;
+        }
+
+        @Override
+        public DomainSpecificValue next() {
+            if (index >= snapshot.length) {
+                throw new NoSuchElementException();
+            }
+            return snapshot[index++];
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Space-saving sketch estimating the most frequent items of a stream in bounded memory.
+ * At most capacity items are counted. When a new item arrives while the sketch is full, it replaces the item with the
+ * lowest count and inherits that count as its error. Every item with a true frequency above n / capacity is guaranteed
+ * to be in the sketch, and counts overestimate the true frequency by at most their error.
+ * <p>
+ * Counters are kept in a min-heap, so offering an item costs O(log capacity).
+ */
+public final class SpaceSavingSketch<T> {
+
+    private final int capacity;
+    private final Map<T, Counter<T>> counters;
+    private final Counter<T>[] heap;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public SpaceSavingSketch(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, but was: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new Counter[capacity];
+    }
+
+    public synchronized void offer(final T item) {
+        Counter<T> counter = counters.get(item);
+        if (counter != null) {
+            counter.count++;
+            siftDown(counter.index);
+        } else if (size < capacity) {
+            counter = new Counter<>(item, 1, 0);
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(item, counter);
+            siftUp(counter.index);
+        } else {
+            Counter<T> min = heap[0];
+            counters.remove(min.item);
+            counter = new Counter<>(item, min.count + 1, min.count);
+            counter.index = 0;
+            heap[0] = counter;
+            counters.put(item, counter);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return the at most n items with the highest counts, highest first, and of equal counts the most certain first
+     */
+    public synchronized List<Counter<T>> top(final int n) {
+        List<Counter<T>> top = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Counter<T> counter = heap[i];
+            top.add(new Counter<>(counter.item, counter.count, counter.error));
+        }
+        top.sort(Comparator.comparingLong((Counter<T> counter) -> -counter.count).thenComparingLong(counter -> counter.error));
+        return top.size() > n ? new ArrayList<>(top.subList(0, Math.max(0, n))) : top;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+        for (int i = 0; i < size; i++) {
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= heap[index].count) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left].count < heap[smallest].count) {
+                smallest = left;
+            }
+            if (right < size && heap[right].count < heap[smallest].count) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        Counter<T> counter = heap[i];
+        heap[i] = heap[j];
+        heap[j] = counter;
+        heap[i].index = i;
+        heap[j].index = j;
+    }
+
+    @Override
+    public String toString() {
+        return "SpaceSavingSketch{capacity=" + capacity + ", top=" + top(10) + '}';
+    }
+
+    /**
+     * Estimated count of an item. The true count is between count - error and count.
+     */
+    public static final class Counter<T> {
+        private final T item;
+        private long count;
+        private final long error;
+        private int index;
+
+        Counter(final T item, final long count, final long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return item + "=" + count + (error > 0 ? " (error " + error + ")" : "");
+        }
+    }
+}
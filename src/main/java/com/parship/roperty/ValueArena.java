@@ -0,0 +1,95 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Append-only off-heap memory for one generation of values, allocated in direct ByteBuffer chunks.
+ * Values larger than a chunk get a chunk of their own. Memory is never freed explicitly, it is released with the
+ * chunks, once no ArenaValue references them anymore. Values surviving a reload are copied into the arena of the new
+ * generation, so a single old value does not keep a whole chunk of an old generation alive. Every arena has its own
+ * cache of decoded texts, which is released together with the generation.
+ */
+final class ValueArena {
+
+    private final int generation;
+    private final int chunkSize;
+    private final DecodedTextCache cache;
+    private ByteBuffer currentChunk;
+    private long allocatedBytes;
+    private long usedBytes;
+    private int chunks;
+
+    /**
+     * @param cacheSize number of decoded texts to keep
+     */
+    ValueArena(final int generation, final int chunkSize, final int cacheSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("\"chunkSize\" must be positive, but was: " + chunkSize);
+        }
+        this.generation = generation;
+        this.chunkSize = chunkSize;
+        this.cache = new DecodedTextCache(cacheSize);
+    }
+
+    synchronized ArenaValue store(final byte[] bytes) {
+        ByteBuffer chunk;
+        if (bytes.length > chunkSize) {
+            chunk = allocate(bytes.length);
+        } else {
+            if (currentChunk == null || currentChunk.remaining() < bytes.length) {
+                currentChunk = allocate(chunkSize);
+            }
+            chunk = currentChunk;
+        }
+        int offset = chunk.position();
+        chunk.put(bytes);
+        usedBytes += bytes.length;
+        return new ArenaValue(chunk, offset, bytes.length, generation, Arrays.hashCode(bytes), cache);
+    }
+
+    private ByteBuffer allocate(final int size) {
+        allocatedBytes += size;
+        chunks++;
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    synchronized int getChunks() {
+        return chunks;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ValueArena{generation=" + generation + ", chunks=" + chunks + ", allocatedBytes=" + allocatedBytes + ", usedBytes=" + usedBytes + '}';
+    }
+}
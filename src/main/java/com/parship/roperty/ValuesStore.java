@@ -4,34 +4,48 @@ import java.io.PrintStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the KeyValues of all keys known in memory. Reads are lock free, adding and removing keys is serialized,
+ * and replacing all values swaps in a new map at once, so concurrent readers never see a partially reloaded store.
+ * Keys added or removed while a reload is running are merged into the reloaded values, so they are not lost.
+ * Null keys and null KeyValues, for example from persistence maps or factories, are not stored.
+ */
 public class ValuesStore {
 
-    private final Map<String, KeyValues> keyValuesMap = new HashMap<>();
+    private final Object writeLock = new Object();
+    private volatile Map<String, KeyValues> keyValuesMap = new ConcurrentHashMap<>();
     private KeyValuesFactory keyValuesFactory;
     private DomainSpecificValueFactory domainSpecificValueFactory;
     private Persistence persistence;
+    private RopertyMetrics metrics = new RopertyMetrics();
+    private volatile RopertyObserver observer = RopertyObserver.NOOP;
 
     public Map<String, KeyValues> getAllValues() {
         return Collections.unmodifiableMap(keyValuesMap);
     }
 
     public void setAllValues(Map<? extends String, ? extends KeyValues> values) {
-        keyValuesMap.clear();
-        keyValuesMap.putAll(values);
+        Map<String, KeyValues> newKeyValuesMap = withoutNulls(values);
+        synchronized (writeLock) {
+            keyValuesMap = newKeyValuesMap;
+        }
     }
 
     public KeyValues getOrCreateKeyValues(final String key, final String description) {
         KeyValues keyValues = getKeyValuesFromMapOrPersistence(key);
         if (keyValues == null) {
-            synchronized (keyValuesMap) {
+            synchronized (writeLock) {
                 keyValues = keyValuesMap.get(key);
                 if (keyValues == null) {
                     keyValues = keyValuesFactory.create(domainSpecificValueFactory);
-                    if (description != null && description.trim().length() > 0) {
-                        keyValues.setDescription(description);
+                    if (keyValues != null) {
+                        if (description != null && description.trim().length() > 0) {
+                            keyValues.setDescription(description);
+                        }
+                        keyValuesMap.put(key, keyValues);
                     }
-                    keyValuesMap.put(key, keyValues);
                 }
             }
         }
@@ -40,10 +54,13 @@ public class ValuesStore {
 
     public KeyValues getKeyValuesFromMapOrPersistence(final String key) {
         KeyValues keyValues = keyValuesMap.get(key);
-        if (keyValues == null) {
+        if (keyValues != null) {
+            observer.cacheHit(key);
+        } else {
+            observer.cacheMiss(key);
             keyValues = load(key);
             if (keyValues != null) {
-                synchronized (keyValuesMap) {
+                synchronized (writeLock) {
                     KeyValues keyValuesSecondTry = keyValuesMap.get(key);
                     if (keyValuesSecondTry == null) {
                         keyValuesMap.put(key, keyValues);
@@ -79,12 +96,20 @@ public class ValuesStore {
     }
 
     public KeyValues remove(String key) {
-        return keyValuesMap.remove(key);
+        synchronized (writeLock) {
+            return keyValuesMap.remove(key);
+        }
     }
 
     private KeyValues load(final String key) {
         if (persistence != null) {
-            return persistence.load(key, keyValuesFactory, domainSpecificValueFactory);
+            metrics.recordCacheMiss();
+            long start = System.nanoTime();
+            KeyValues keyValues = persistence.load(key, keyValuesFactory, domainSpecificValueFactory);
+            long duration = System.nanoTime() - start;
+            metrics.recordLoad(duration);
+            observer.persistenceCalled(RopertyObserver.PersistenceOperation.LOAD, key, duration);
+            return keyValues;
         }
         return null;
     }
@@ -101,9 +126,69 @@ public class ValuesStore {
         this.persistence = persistence;
     }
 
+    public void setMetrics(RopertyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setObserver(RopertyObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * @return a read-only columnar snapshot of all values currently held in memory
+     */
+    public CompiledValuesStore compile() {
+        return CompiledValuesStore.compile(snapshot());
+    }
+
+    Map<String, KeyValues> snapshot() {
+        return new HashMap<>(keyValuesMap);
+    }
+
     public void reload() {
         if (persistence != null) {
-            setAllValues(persistence.reload(getAllValues(), keyValuesFactory, domainSpecificValueFactory));
+            domainSpecificValueFactory.startGeneration();
+            Map<String, KeyValues> valuesBeforeReload = snapshot();
+            long start = System.nanoTime();
+            Map<String, KeyValues> reloadedValues = persistence.reload(Collections.unmodifiableMap(valuesBeforeReload), keyValuesFactory,
+                domainSpecificValueFactory);
+            long duration = System.nanoTime() - start;
+            metrics.recordReload(duration);
+            observer.persistenceCalled(RopertyObserver.PersistenceOperation.RELOAD, null, duration);
+            replaceAfterReload(valuesBeforeReload, reloadedValues);
+            domainSpecificValueFactory.finishGeneration(keyValuesMap.values());
+        }
+    }
+
+    /**
+     * Swaps in the reloaded values, keeping the KeyValues created and dropping the keys removed since the reload started.
+     */
+    private void replaceAfterReload(final Map<String, KeyValues> valuesBeforeReload, final Map<String, KeyValues> reloadedValues) {
+        Map<String, KeyValues> newKeyValuesMap = withoutNulls(reloadedValues);
+        synchronized (writeLock) {
+            for (Map.Entry<String, KeyValues> entry : keyValuesMap.entrySet()) {
+                if (valuesBeforeReload.get(entry.getKey()) != entry.getValue()) {
+                    newKeyValuesMap.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (String key : valuesBeforeReload.keySet()) {
+                if (!keyValuesMap.containsKey(key)) {
+                    newKeyValuesMap.remove(key);
+                }
+            }
+            keyValuesMap = newKeyValuesMap;
+        }
+    }
+
+    private static Map<String, KeyValues> withoutNulls(final Map<? extends String, ? extends KeyValues> values) {
+        Map<String, KeyValues> map = new ConcurrentHashMap<>();
+        if (values != null) {
+            for (Map.Entry<? extends String, ? extends KeyValues> entry : values.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+            }
         }
+        return map;
     }
 }
@@ -18,19 +18,29 @@
 package com.parship.roperty.jmx;
 
 import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.parship.roperty.DomainPatternPool;
+import com.parship.roperty.HotspotTracker;
 import com.parship.roperty.KeyValues;
+import com.parship.roperty.LookupPlan;
+import com.parship.roperty.LookupPlanner;
 import com.parship.roperty.Roperty;
+import com.parship.roperty.RopertyMetrics;
 
 
 /**
@@ -107,6 +117,206 @@ public class RopertyManager implements RopertyManagerMBean {
 		return roperties.keySet().toString();
 	}
 
+	@Override
+	public String getDomainPatternPoolStatistics() {
+		return DomainPatternPool.getInstance().toString();
+	}
+
+	/**
+	 * Lookups are only counted by Roperty instances with access tracking enabled.
+	 *
+	 * @return the number of lookups of all keys, which were answered without resolving domain values
+	 */
+	@Override
+	public String getLookupStatistics() {
+		long defaultOnlyLookups = 0;
+		long resolvedLookups = 0;
+		for (Roperty roperty : roperties.keySet()) {
+			Map<String, KeyValues> keyValuesMap = roperty.getKeyValues();
+			if (keyValuesMap != null) {
+				for (KeyValues keyValues : keyValuesMap.values()) {
+					defaultOnlyLookups += keyValues.getDefaultOnlyLookups();
+					resolvedLookups += keyValues.getResolvedLookups();
+				}
+			}
+		}
+		return lookupStatistics(defaultOnlyLookups, resolvedLookups);
+	}
+
+	@Override
+	public String getLookupStatistics(final String key) {
+		StringBuilder builder = new StringBuilder(roperties.keySet().size() * 64);
+		for (Roperty roperty : roperties.keySet()) {
+			KeyValues keyValues = roperty.getKeyValues(key);
+			if (keyValues != null) {
+				builder.append(lookupStatistics(keyValues.getDefaultOnlyLookups(), keyValues.getResolvedLookups())).append('\n');
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Only meaningful for Roperty instances with access tracking enabled.
+	 *
+	 * @return the keys of all Roperty instances, which were never read since they were loaded, one per line
+	 */
+	@Override
+	public String listUnusedKeys() {
+		Set<String> unusedKeys = new TreeSet<>();
+		for (Roperty roperty : roperties.keySet()) {
+			Map<String, KeyValues> keyValuesMap = roperty.getKeyValues();
+			if (keyValuesMap != null) {
+				for (Map.Entry<String, KeyValues> entry : keyValuesMap.entrySet()) {
+					if (entry.getValue().getLastAccess() == 0) {
+						unusedKeys.add(entry.getKey());
+					}
+				}
+			}
+		}
+		return String.join("\n", unusedKeys);
+	}
+
+	/**
+	 * Only meaningful for Roperty instances with access tracking enabled.
+	 *
+	 * @return the keys of all Roperty instances, which were not read for at least idleSeconds, one per line
+	 */
+	@Override
+	public String listColdKeys(final long idleSeconds) {
+		long threshold = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleSeconds);
+		Set<String> coldKeys = new TreeSet<>();
+		for (Roperty roperty : roperties.keySet()) {
+			Map<String, KeyValues> keyValuesMap = roperty.getKeyValues();
+			if (keyValuesMap != null) {
+				for (Map.Entry<String, KeyValues> entry : keyValuesMap.entrySet()) {
+					if (entry.getValue().getLastAccess() <= threshold) {
+						coldKeys.add(entry.getKey());
+					}
+				}
+			}
+		}
+		return String.join("\n", coldKeys);
+	}
+
+	/**
+	 * @return the lookup plan and statistics of the key in every Roperty instance, one per line
+	 */
+	@Override
+	public String getLookupPlan(final String key) {
+		StringBuilder builder = new StringBuilder(roperties.keySet().size() * 128);
+		for (Roperty roperty : roperties.keySet()) {
+			KeyValues keyValues = roperty.getKeyValues(key);
+			if (keyValues != null) {
+				builder.append(keyValues.getStatistics()).append('\n');
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @return the number of keys per lookup plan of all Roperty instances
+	 */
+	@Override
+	public String getLookupPlans() {
+		Map<LookupPlan, Integer> counts = new EnumMap<>(LookupPlan.class);
+		for (LookupPlan plan : LookupPlan.values()) {
+			counts.put(plan, 0);
+		}
+		for (Roperty roperty : roperties.keySet()) {
+			Map<String, KeyValues> keyValuesMap = roperty.getKeyValues();
+			if (keyValuesMap != null) {
+				for (KeyValues keyValues : keyValuesMap.values()) {
+					counts.merge(keyValues.getLookupPlan(), 1, Integer::sum);
+				}
+			}
+		}
+		return "LookupPlans" + counts;
+	}
+
+	/**
+	 * Decides the lookup plans of all keys again, based on the lookups measured so far.
+	 */
+	@Override
+	public void replanAll() {
+		for (Roperty roperty : roperties.keySet()) {
+			Map<String, KeyValues> keyValuesMap = roperty.getKeyValues();
+			if (keyValuesMap != null) {
+				for (KeyValues keyValues : keyValuesMap.values()) {
+					keyValues.replan();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isLookupPlannerEnabled() {
+		return LookupPlanner.getInstance().isEnabled();
+	}
+
+	@Override
+	public void setLookupPlannerEnabled(final boolean enabled) {
+		LookupPlanner.getInstance().setEnabled(enabled);
+	}
+
+	private static String lookupStatistics(final long defaultOnlyLookups, final long resolvedLookups) {
+		return "LookupStatistics{defaultOnlyLookups=" + defaultOnlyLookups + ", resolvedLookups=" + resolvedLookups + '}';
+	}
+
+	/**
+	 * Registers the metrics of a single Roperty instance as MBean "com.parship.roperty:type=RopertyMetrics,name=&lt;name&gt;".
+	 * Metrics registered before with the same name are replaced.
+	 */
+	public void registerMetrics(final String name, final RopertyMetrics metrics) {
+		register(RopertyMetrics.class, name, metrics);
+	}
+
+	public void unregisterMetrics(final String name) {
+		unregister(RopertyMetrics.class, name);
+	}
+
+	/**
+	 * Registers the hotspot tracker of a single Roperty instance as MBean "com.parship.roperty:type=HotspotTracker,name=&lt;name&gt;".
+	 * A tracker registered before with the same name is replaced.
+	 */
+	public void registerHotspots(final String name, final HotspotTracker hotspotTracker) {
+		register(HotspotTracker.class, name, hotspotTracker);
+	}
+
+	public void unregisterHotspots(final String name) {
+		unregister(HotspotTracker.class, name);
+	}
+
+	private static void register(final Class<?> type, final String name, final Object mbean) {
+		Objects.requireNonNull(name, "\"name\" must not be null");
+		Objects.requireNonNull(mbean, "\"mbean\" must not be null");
+		MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = objectName(type, name);
+			if (mbs.isRegistered(objectName)) {
+				mbs.unregisterMBean(objectName);
+			}
+			mbs.registerMBean(mbean, objectName);
+		} catch (Exception e) {
+			LOGGER.warn("Could not register {} MBean for Roperty {}", type.getSimpleName(), name, e);
+		}
+	}
+
+	private static void unregister(final Class<?> type, final String name) {
+		MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = objectName(type, name);
+			if (mbs.isRegistered(objectName)) {
+				mbs.unregisterMBean(objectName);
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Could not unregister {} MBean for Roperty {}", type.getSimpleName(), name, e);
+		}
+	}
+
+	private static ObjectName objectName(final Class<?> type, final String name) throws MalformedObjectNameException {
+		return new ObjectName("com.parship.roperty:type=" + type.getSimpleName() + ",name=" + ObjectName.quote(name));
+	}
+
 	public void reset() {
 		roperties.clear();
 	}
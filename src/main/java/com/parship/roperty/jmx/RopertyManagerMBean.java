@@ -27,4 +27,14 @@ public interface RopertyManagerMBean {
 	String dump(String key);
 	void reload();
 	String listRoperties();
+	String getDomainPatternPoolStatistics();
+	String getLookupStatistics();
+	String getLookupStatistics(String key);
+	String listUnusedKeys();
+	String listColdKeys(long idleSeconds);
+	String getLookupPlan(String key);
+	String getLookupPlans();
+	void replanAll();
+	boolean isLookupPlannerEnabled();
+	void setLookupPlannerEnabled(boolean enabled);
 }
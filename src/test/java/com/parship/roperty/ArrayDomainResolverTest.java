@@ -0,0 +1,93 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class ArrayDomainResolverTest {
+
+    private final RopertyImpl roperty = new RopertyImpl("country", "language");
+    private final ArrayDomainResolver resolver = new ArrayDomainResolver(roperty).with("country", "DE").with("language", "de");
+
+    @Test
+    public void valuesAreResolvedByDomain() {
+        assertThat(resolver.getDomainValue("country"), is("DE"));
+        assertThat(resolver.getDomainValue("language"), is("de"));
+        assertThat(resolver.getDomainValue("unknown"), nullValue());
+        assertThat(resolver.toString(), is("ArrayDomainResolver{country=DE, language=de, activeChangeSets=[]}"));
+    }
+
+    @Test
+    public void derivedResolversDoNotChangeTheOriginal() {
+        ArrayDomainResolver derived = resolver.with("language", "en").withActiveChangeSets("summer");
+        assertThat(resolver.getDomainValue("language"), is("de"));
+        assertThat(resolver.getActiveChangeSets(), empty());
+        assertThat(derived.getDomainValue("language"), is("en"));
+        assertThat(derived.getActiveChangeSets(), containsInAnyOrder("summer"));
+        assertThat(derived.getActiveChangeSets(), sameInstance(derived.getActiveChangeSets()));
+        assertThat(derived, not(resolver));
+        assertThat(resolver.with("language", "de"), is(resolver));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDomainsCanNotBeSet() {
+        resolver.with("partner", "google");
+    }
+
+    @Test
+    public void ropertyResolvesValuesBySlot() {
+        roperty.set("key", "default", null);
+        roperty.set("key", "de", null, "*", "de");
+        roperty.setWithChangeSet("key", "DE summer", null, "summer", "DE", "de");
+        assertThat(roperty.<String>get("key", resolver), is("de"));
+        assertThat(roperty.<String>get("key", resolver.withActiveChangeSets("summer")), is("DE summer"));
+        assertThat(roperty.<String>get("key", resolver.with("language", "en")), is("default"));
+    }
+
+    @Test
+    public void resolverOfAnOlderSchemaIsReboundToTheExtendedSchema() {
+        roperty.addDomains("partner");
+        DomainSchema extended = roperty.getDomainSchema();
+        roperty.set("key", "de", null, "DE", "de");
+        roperty.set("key", "google", null, "DE", "de", "google");
+        assertThat(roperty.<String>get("key", resolver), is("de"));
+        String[] values = new String[extended.size()];
+        resolver.resolve(extended, values);
+        assertThat(values, is(new String[] {"DE", "de", null}));
+        assertThat(resolver.getDomainValue(extended, 1), is("de"));
+        assertThat(resolver.getDomainValue(extended, 2), nullValue());
+    }
+
+    @Test
+    public void schemasWithOtherDomainOrderAreResolvedByName() {
+        DomainSchema reordered = DomainSchema.of("language", "country");
+        String[] values = new String[2];
+        resolver.resolve(reordered, values);
+        assertThat(values, is(new String[] {"de", "DE"}));
+        assertThat(resolver.getDomainValue(reordered, 1), is("DE"));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class CachingDomainResolverTest {
+
+    private final DomainResolver delegate = mock(DomainResolver.class);
+    private final CachingDomainResolver resolver = new CachingDomainResolver(delegate);
+
+    @Test
+    public void domainValuesAreResolvedOnlyOnce() {
+        when(delegate.getDomainValue("country")).thenReturn("DE");
+        assertThat(resolver.getDomainValue("country"), is("DE"));
+        assertThat(resolver.getDomainValue("country"), is("DE"));
+        assertThat(resolver.getDomainValue("partner"), nullValue());
+        assertThat(resolver.getDomainValue("partner"), nullValue());
+        verify(delegate, times(1)).getDomainValue("country");
+        verify(delegate, times(1)).getDomainValue("partner");
+    }
+
+    @Test
+    public void activeChangeSetsAreResolvedOnlyOnce() {
+        when(delegate.getActiveChangeSets()).thenReturn(Collections.singleton("summer"));
+        resolver.getActiveChangeSets();
+        assertThat(resolver.getActiveChangeSets().contains("summer"), is(true));
+        verify(delegate, times(1)).getActiveChangeSets();
+    }
+
+    @Test
+    public void ropertyLookupsResolveEveryDomainOnce() {
+        when(delegate.getDomainValue("country")).thenReturn("DE");
+        when(delegate.getDomainValue("language")).thenReturn("de");
+        when(delegate.getActiveChangeSets()).thenReturn(Collections.emptyList());
+        RopertyImpl roperty = new RopertyImpl("country", "language");
+        roperty.set("key1", "DE", null, "DE");
+        roperty.set("key2", "default", null);
+        roperty.set("key2", "de", null, "AT", "de");
+        roperty.set("key2", "DE de", null, "DE", "de");
+        assertThat(roperty.<String>get("key1", resolver), is("DE"));
+        assertThat(roperty.<String>get("key2", resolver), is("DE de"));
+        assertThat(roperty.<String>get("key2", resolver), is("DE de"));
+        verify(delegate, times(1)).getDomainValue("country");
+        verify(delegate, times(1)).getDomainValue("language");
+    }
+
+    @Test
+    public void vectorHashIsStableAndDependsOnValuesAndChangeSets() {
+        DomainSchema schema = DomainSchema.of("country", "language");
+        ArrayDomainResolver base = new ArrayDomainResolver(schema).with("country", "DE");
+        long hash = new CachingDomainResolver(base).getVectorHash(schema);
+        assertThat(new CachingDomainResolver(base).getVectorHash(schema), is(hash));
+        assertThat(new CachingDomainResolver(base.with("language", "")).getVectorHash(schema), is(hash));
+        assertThat(new CachingDomainResolver(base.with("language", "de")).getVectorHash(schema), not(hash));
+        assertThat(new CachingDomainResolver(base.withActiveChangeSets("summer")).getVectorHash(schema), not(hash));
+        assertThat(new CachingDomainResolver(base.with("country", "D").with("language", "E")).getVectorHash(schema), not(hash));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+
+public class CompiledValuesStoreTest {
+
+    private static final List<String> DOMAINS = asList("country", "language", "partner");
+
+    private final DomainSpecificValueFactory factory = new DomainSpecificValueFactoryWithDeduplication();
+    private final Map<String, KeyValues> keyValuesMap = new HashMap<>();
+    private final MapBackedDomainResolver resolver = new MapBackedDomainResolver()
+        .set("country", "DE").set("language", "de").set("partner", "google");
+
+    private KeyValues keyValues(final String key) {
+        return keyValuesMap.computeIfAbsent(key, k -> new KeyValues(factory));
+    }
+
+    @Test
+    public void bestMatchingValueIsReturned() {
+        keyValues("key").put("default");
+        keyValues("key").put("DE", "DE");
+        keyValues("key").put("google", "*", "*", "google");
+        keyValues("key").put("de google", "*", "de", "google");
+        keyValues("other").put("AT", "AT");
+        CompiledValuesStore store = CompiledValuesStore.compile(keyValuesMap);
+        assertThat(store.<String>get("key", DOMAINS, null, resolver), is("de google"));
+        assertThat(store.<String>get("other", DOMAINS, "fallback", resolver), is("fallback"));
+        assertThat(store.<String>get("unknown", DOMAINS, "fallback", resolver), is("fallback"));
+        assertThat(store.getKeyCount(), is(2));
+        assertThat(store.getValueCount(), is(5));
+    }
+
+    @Test
+    public void partialWildcardsAreMatchedByTheirPattern() {
+        keyValues("key").put("default");
+        keyValues("key").put("partial", "D*");
+        keyValues("key").put("exact", "AT");
+        CompiledValuesStore store = CompiledValuesStore.compile(keyValuesMap);
+        assertThat(store.<String>get("key", DOMAINS, null, resolver), is("partial"));
+        assertThat(store.<String>get("key", DOMAINS, null, new MapBackedDomainResolver().set("country", "AT")), is("exact"));
+        assertThat(store.<String>get("key", DOMAINS, null, new MapBackedDomainResolver().set("country", "CH")), is("default"));
+    }
+
+    @Test
+    public void changeSetsAreOnlyUsedWhenActive() {
+        keyValues("key").put("default");
+        keyValues("key").putWithChangeSet("summer", "summer default");
+        CompiledValuesStore store = CompiledValuesStore.compile(keyValuesMap);
+        assertThat(store.<String>get("key", DOMAINS, null, resolver), is("default"));
+        resolver.addActiveChangeSets("summer");
+        assertThat(store.<String>get("key", DOMAINS, null, resolver), is("summer default"));
+    }
+
+    @Test
+    public void descriptionsAreKept() {
+        keyValues("key").setDescription("description");
+        CompiledValuesStore store = CompiledValuesStore.compile(keyValuesMap);
+        assertThat(store.containsKey("key"), is(true));
+        assertThat(store.getDescription("key"), is("description"));
+        assertThat(store.getDescription("unknown"), nullValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void domainValuesMustNotContainPipe() {
+        keyValues("key").put("default");
+        CompiledValuesStore.compile(keyValuesMap).get("key", DOMAINS, null, new MapBackedDomainResolver().set("country", "a|b"));
+    }
+
+    @Test
+    public void resultsAreTheSameAsForKeyValues() {
+        Random random = new Random(4711);
+        String[][] domainValues = {{"DE", "AT", "CH"}, {"de", "en", "fr"}, {"google", "bing", "ddg"}};
+        for (int key = 0; key < 200; key++) {
+            KeyValues keyValues = keyValues("key" + key);
+            for (int i = random.nextInt(8); i >= 0; i--) {
+                String[] pattern = new String[random.nextInt(4)];
+                for (int d = 0; d < pattern.length; d++) {
+                    int kind = random.nextInt(6);
+                    pattern[d] = kind < 2 ? "*" : kind == 2 ? domainValues[d][random.nextInt(3)].charAt(0) + "*" : domainValues[d][random.nextInt(3)];
+                }
+                String changeSet = random.nextInt(5) == 0 ? "cs" + random.nextInt(2) : null;
+                keyValues.putWithChangeSet(changeSet, "key" + key + Arrays.toString(pattern) + changeSet, pattern);
+            }
+        }
+        CompiledValuesStore store = CompiledValuesStore.compile(keyValuesMap);
+        for (int query = 0; query < 2000; query++) {
+            MapBackedDomainResolver queryResolver = new MapBackedDomainResolver()
+                .set("country", domainValues[0][random.nextInt(3)])
+                .set("language", domainValues[1][random.nextInt(3)])
+                .set("partner", random.nextBoolean() ? domainValues[2][random.nextInt(3)] : "unknown");
+            if (random.nextBoolean()) {
+                queryResolver.addActiveChangeSets("cs" + random.nextInt(2));
+            }
+            String key = "key" + random.nextInt(200);
+            assertThat(store.get(key, DOMAINS, "default", queryResolver), is(keyValuesMap.get(key).get(DOMAINS, "default", queryResolver)));
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+
+/**
+ * Runs mixes of get, set, remove, removeChangeSet and reload on many threads and checks invariants, which hold
+ * under any interleaving:
+ * <ul>
+ * <li>no operation throws</li>
+ * <li>stable keys are never missing and resolve to their default value for domains nobody overrides</li>
+ * <li>every reader sees the values of a single-writer register in the order they were written</li>
+ * <li>after all threads stopped, every register holds its last written value</li>
+ * <li>after all threads stopped, removing a changeSet removes all of its values</li>
+ * </ul>
+ * The duration of every run is set with the system property "roperty.stress.millis". Throughput is logged, so changes
+ * to the concurrency design can be compared.
+ */
+public class ConcurrencyStressTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyStressTest.class);
+    private static final long DURATION_MILLIS = Long.getLong("roperty.stress.millis", 300);
+    private static final int THREADS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+    private static final int STABLE_KEYS = 10;
+    private static final int CHAOS_KEYS = 20;
+    private static final String[] CHANGE_SETS = {"cs0", "cs1", "cs2", "cs3"};
+
+    @Test
+    public void mixedOperationsOnPlatformThreads() throws Exception {
+        for (KeyValuesFactory keyValuesFactory : keyValuesFactories()) {
+            run(new Workload(keyValuesFactory, false), Executors.newFixedThreadPool(THREADS), THREADS);
+        }
+    }
+
+    @Test
+    public void mixedOperationsWithConcurrentReloads() throws Exception {
+        for (KeyValuesFactory keyValuesFactory : keyValuesFactories()) {
+            run(new Workload(keyValuesFactory, true), Executors.newFixedThreadPool(THREADS), THREADS);
+        }
+    }
+
+    @Test
+    public void mixedOperationsOnVirtualThreads() throws Exception {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        Assume.assumeTrue("Virtual threads are not available in this JVM", executor != null);
+        run(new Workload(new DefaultKeyValuesFactory(), true), executor, 4 * THREADS);
+    }
+
+    /**
+     * Keeps a key large enough to be planned and indexed, while writers add and remove values with new first domains,
+     * so the index is rebuilt while the values change.
+     */
+    @Test
+    public void indexedLookupsWhileValuesChange() throws Exception {
+        int indexedDomains = 2 * LookupPlanner.DEFAULT_MINIMUM_SIZE;
+        for (KeyValuesFactory keyValuesFactory : keyValuesFactories()) {
+            RopertyImpl roperty = new RopertyImpl("country", "language");
+            roperty.setKeyValuesFactory(keyValuesFactory);
+            roperty.set("indexed", "default", null);
+            for (int i = 0; i < indexedDomains; i++) {
+                roperty.set("indexed", "value" + i, null, "C" + i);
+            }
+            runThreads(Executors.newFixedThreadPool(THREADS), THREADS, role -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if (role % 4 == 0) {
+                    String country = "N" + random.nextInt(1000);
+                    roperty.set("indexed", "new", null, country, "de");
+                    roperty.remove("indexed", country, "de");
+                } else {
+                    int i = random.nextInt(indexedDomains);
+                    Object value = roperty.get("indexed", new MapBackedDomainResolver().set("country", "C" + i).set("language", "de"));
+                    if (!("value" + i).equals(value)) {
+                        throw new AssertionError("C" + i + " resolved to " + value);
+                    }
+                }
+            });
+        }
+    }
+
+    private static List<KeyValuesFactory> keyValuesFactories() {
+        List<KeyValuesFactory> factories = new ArrayList<>();
+        factories.add(new DefaultKeyValuesFactory());
+        factories.add(new CopyOnWriteKeyValuesFactory());
+        return factories;
+    }
+
+    /**
+     * Virtual threads are created by reflection, so the tests compile and run on Java 8.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static void run(final Workload workload, final ExecutorService executor, final int threads) throws Exception {
+        long elapsedNanos = runThreads(executor, threads, workload::step);
+        workload.verifyQuiescentState();
+        LOGGER.info("{} with {} threads: {} ops/s ({} reads, {} writes, {} reloads)", workload, threads,
+            workload.operations.sum() * 1000000000L / Math.max(1, elapsedNanos), workload.reads.sum(), workload.writes.sum(), workload.reloads.sum());
+    }
+
+    /**
+     * Runs the step on all threads until the duration elapsed or a step failed.
+     *
+     * @return the elapsed nanoseconds
+     */
+    private static long runThreads(final ExecutorService executor, final int threads, final IntConsumer step) throws Exception {
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        for (int thread = 0; thread < threads; thread++) {
+            final int role = thread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline && failures.isEmpty()) {
+                        step.accept(role);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        boolean finished = done.await(DURATION_MILLIS + 30000, TimeUnit.MILLISECONDS);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdownNow();
+        assertThat("all threads finished", finished, is(true));
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError("Invariant violated under contention: " + failures.peek(), failures.peek());
+            failures.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+        return elapsedNanos;
+    }
+
+    private static final class Workload {
+        private final KeyValuesFactory keyValuesFactory;
+        private final boolean reloading;
+        private final RopertyImpl roperty;
+        private final AtomicLong[] registers = new AtomicLong[THREADS];
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        private final LongAdder reloads = new LongAdder();
+        private final ThreadLocal<long[]> lastSeen = ThreadLocal.withInitial(() -> new long[THREADS]);
+
+        Workload(final KeyValuesFactory keyValuesFactory, final boolean reloading) {
+            this.keyValuesFactory = keyValuesFactory;
+            this.reloading = reloading;
+            this.roperty = reloading
+                ? new RopertyImpl(new InMemoryPersistence(), keyValuesFactory, new DomainSpecificValueFactoryWithDeduplication(), "country", "language")
+                : new RopertyImpl("country", "language");
+            roperty.setKeyValuesFactory(keyValuesFactory);
+            for (int i = 0; i < STABLE_KEYS; i++) {
+                roperty.set("stable" + i, "default" + i, null);
+            }
+            for (int i = 0; i < THREADS; i++) {
+                registers[i] = new AtomicLong();
+                roperty.set("register" + i, 0L, null, "R" + i);
+            }
+        }
+
+        void step(final int role) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int writerRole = role % THREADS;
+            if (role < THREADS && role % 4 == 0) {
+                writeRegister(writerRole);
+            } else if (role < THREADS && role % 4 == 1) {
+                chaos(random);
+            } else {
+                read(random);
+            }
+            operations.increment();
+        }
+
+        private void writeRegister(final int writer) {
+            long next = registers[writer].incrementAndGet();
+            roperty.set("register" + writer, next, null, "R" + writer);
+            writes.increment();
+        }
+
+        private void chaos(final ThreadLocalRandom random) {
+            String key = random.nextBoolean() ? "chaos" + random.nextInt(CHAOS_KEYS) : "stable" + random.nextInt(STABLE_KEYS);
+            String changeSet = CHANGE_SETS[random.nextInt(CHANGE_SETS.length)];
+            switch (random.nextInt(reloading ? 8 : 7)) {
+                case 0:
+                    roperty.set(key, "override", null, "X" + random.nextInt(5));
+                    break;
+                case 1:
+                    roperty.set(key, "override", null, "X" + random.nextInt(5), "*");
+                    break;
+                case 2:
+                    roperty.setWithChangeSet(key, "changeSet", null, changeSet, "X" + random.nextInt(5));
+                    break;
+                case 3:
+                    roperty.remove(key, "X" + random.nextInt(5));
+                    break;
+                case 4:
+                    roperty.removeWithChangeSet(key, changeSet, "X" + random.nextInt(5));
+                    break;
+                case 5:
+                    roperty.removeChangeSet(changeSet);
+                    break;
+                case 6:
+                    if (key.startsWith("chaos")) {
+                        roperty.removeKey(key);
+                    }
+                    break;
+                default:
+                    roperty.reload();
+                    reloads.increment();
+                    return;
+            }
+            writes.increment();
+        }
+
+        private void read(final ThreadLocalRandom random) {
+            MapBackedDomainResolver resolver = new MapBackedDomainResolver().set("language", "de");
+            if (random.nextBoolean()) {
+                resolver.addActiveChangeSets(CHANGE_SETS[random.nextInt(CHANGE_SETS.length)]);
+            }
+            int stable = random.nextInt(STABLE_KEYS);
+            Object value = roperty.get("stable" + stable, resolver.set("country", "unused"));
+            if (!("default" + stable).equals(value)) {
+                throw new AssertionError("stable" + stable + " resolved to " + value);
+            }
+            int register = random.nextInt(THREADS);
+            Long registerValue = roperty.get("register" + register, resolver.set("country", "R" + register));
+            if (registerValue == null) {
+                throw new AssertionError("register" + register + " is missing");
+            }
+            long[] seen = lastSeen.get();
+            if (registerValue < seen[register]) {
+                throw new AssertionError("register" + register + " went back from " + seen[register] + " to " + registerValue);
+            }
+            seen[register] = registerValue;
+            roperty.get("chaos" + random.nextInt(CHAOS_KEYS), resolver.set("country", "X" + random.nextInt(5)));
+            reads.increment();
+        }
+
+        void verifyQuiescentState() {
+            MapBackedDomainResolver resolver = new MapBackedDomainResolver();
+            for (int i = 0; i < THREADS; i++) {
+                Long value = roperty.get("register" + i, resolver.set("country", "R" + i));
+                assertThat("register" + i, value, is(registers[i].get()));
+            }
+            for (String changeSet : CHANGE_SETS) {
+                roperty.removeChangeSet(changeSet);
+            }
+            List<String> leftOvers = new ArrayList<>();
+            for (Map.Entry<String, KeyValues> entry : roperty.getKeyValues().entrySet()) {
+                for (DomainSpecificValue value : entry.getValue().getDomainSpecificValues()) {
+                    if (value.getChangeSet() != null) {
+                        leftOvers.add(entry.getKey() + ": " + value);
+                    }
+                }
+            }
+            assertThat("values left after removing their changeSet", leftOvers, empty());
+        }
+
+        @Override
+        public String toString() {
+            return keyValuesFactory.getClass().getSimpleName() + (reloading ? " with reloads" : "");
+        }
+    }
+
+    /**
+     * Keeps the stored KeyValues, so a reload returns the values held in memory.
+     */
+    private static final class InMemoryPersistence implements Persistence {
+        private final Map<String, KeyValues> stored = new java.util.concurrent.ConcurrentHashMap<>();
+
+        @Override
+        public KeyValues load(final String key, final KeyValuesFactory keyValuesFactory, final DomainSpecificValueFactory domainSpecificValueFactory) {
+            return stored.get(key);
+        }
+
+        @Override
+        public Map<String, KeyValues> loadAll(final KeyValuesFactory keyValuesFactory, final DomainSpecificValueFactory domainSpecificValueFactory) {
+            return new HashMap<>(stored);
+        }
+
+        @Override
+        public Map<String, KeyValues> reload(final Map<String, KeyValues> keyValuesMap, final KeyValuesFactory keyValuesFactory,
+                                             final DomainSpecificValueFactory domainSpecificValueFactory) {
+            Map<String, KeyValues> reloaded = new HashMap<>(keyValuesMap);
+            reloaded.putAll(stored);
+            return reloaded;
+        }
+
+        @Override
+        public void store(final String key, final KeyValues keyValues, final String changeSet) {
+            stored.put(key, keyValues);
+        }
+
+        @Override
+        public void remove(final String key, final KeyValues keyValues, final String changeSet) {
+            stored.remove(key);
+        }
+
+        @Override
+        public void remove(final String key, final DomainSpecificValue domainSpecificValue, final String changeSet) {
+        }
+
+        @Override
+        public List<String> findKeys(final String substring, final String containerName) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getAllKeys() {
+            return new ArrayList<>(stored.keySet());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+
+public class CopyOnWriteKeyValuesFactoryTest {
+
+    private final KeyValues keyValues = new CopyOnWriteKeyValuesFactory().create(new DefaultDomainSpecificValueFactory());
+    private final DomainResolver resolver = new DomainResolver() {
+        @Override
+        public String getDomainValue(final String domain) {
+            return domain;
+        }
+
+        @Override
+        public Collection<String> getActiveChangeSets() {
+            return new ArrayList<>();
+        }
+    };
+
+    @Test
+    public void valuesAreKeptInLongestMatchFirstOrder() {
+        keyValues.put("value1", "dom1");
+        keyValues.put("value2", "dom1", "dom2");
+        keyValues.put("value*", "*", "dom2");
+        keyValues.put("default");
+        Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
+        assertThat(domainSpecificValues, hasSize(4));
+        Iterator<DomainSpecificValue> iterator = domainSpecificValues.iterator();
+        assertThat(iterator.next().getPatternStr(), is("dom1|dom2|"));
+        assertThat(iterator.next().getPatternStr(), is("*|dom2|"));
+        assertThat(iterator.next().getPatternStr(), is("dom1|"));
+        assertThat(iterator.next().getPatternStr(), is(""));
+    }
+
+    @Test
+    public void valuesWithoutValueAreListed() {
+        RopertyImpl roperty = new RopertyImpl();
+        roperty.setKeyValuesFactory(new CopyOnWriteKeyValuesFactory());
+        roperty.getOrDefine("key", null, resolver);
+        Set<DomainSpecificValue> domainSpecificValues = roperty.getKeyValues("key").getDomainSpecificValues();
+        assertThat(domainSpecificValues, hasSize(1));
+        assertThat(domainSpecificValues.iterator().next().getValue(), nullValue());
+    }
+
+    @Test
+    public void bestMatchIsReturned() {
+        keyValues.put("default");
+        keyValues.put("value_1", "*", "*", "domain3");
+        keyValues.put("value_2", "domain1", "*", "domain3");
+        assertThat(keyValues.<String>get(asList("domain1", "domain2", "domain3"), null, resolver), is("value_2"));
+        assertThat(keyValues.<String>get(asList("other", "domain2", "domain3"), null, resolver), is("value_1"));
+        assertThat(keyValues.<String>getDefaultValue(), is("default"));
+    }
+
+    @Test
+    public void puttingAnExistingPatternChangesTheValue() {
+        keyValues.put("first", "dom1");
+        keyValues.put("second", "dom1");
+        assertThat(keyValues.getDomainSpecificValues(), hasSize(1));
+        assertThat(keyValues.<String>get(asList("dom1"), null, resolver), is("second"));
+    }
+
+    @Test
+    public void snapshotIsNotChangedByLaterWrites() {
+        keyValues.put("value1", "dom1");
+        Set<DomainSpecificValue> snapshot = keyValues.getDomainSpecificValues();
+        keyValues.put("value2", "dom2");
+        assertThat(snapshot, hasSize(1));
+        assertThat(keyValues.getDomainSpecificValues(), hasSize(2));
+    }
+
+    @Test
+    public void removeValue() {
+        keyValues.put("value1", "dom1");
+        keyValues.put("value2", "dom1", "dom2");
+        DomainSpecificValue removed = keyValues.remove(null, new String[]{"dom1", "dom2"});
+        assertThat(removed.getPatternStr(), is("dom1|dom2|"));
+        assertThat(keyValues.remove(null, new String[]{"dom1", "dom2"}), nullValue());
+        assertThat(keyValues.getDomainSpecificValues(), hasSize(1));
+    }
+
+    @Test
+    public void removeChangeSet() {
+        keyValues.put("value");
+        keyValues.putWithChangeSet("changeSet", "changed", "dom1");
+        keyValues.putWithChangeSet("changeSet", "changed default");
+        Collection<DomainSpecificValue> removed = keyValues.removeChangeSet("changeSet");
+        assertThat(removed, hasSize(2));
+        assertThat(keyValues.getDomainSpecificValues(), hasSize(1));
+        assertThat(keyValues.getDomainSpecificValues().iterator().next().getChangeSet(), nullValue());
+        assertThat(keyValues.removeChangeSet("changeSet"), empty());
+    }
+}
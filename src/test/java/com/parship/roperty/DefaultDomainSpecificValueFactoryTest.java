@@ -1,9 +1,12 @@
 package com.parship.roperty;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThat;
 
 
@@ -43,4 +46,26 @@ public class DefaultDomainSpecificValueFactoryTest {
 
 		assertThat(dsv.compareTo(moreSpecificDsv), greaterThan(0));
 	}
+
+	@Test
+	public void orderingSupportsManyDomains() {
+		String[] domains = new String[AbstractDomainSpecificValueFactory.MAX_DOMAINS];
+		Arrays.fill(domains, "*");
+		domains[40] = "flag";
+		DomainSpecificValue deepDsv = factory.create("deep", null, domains);
+		domains[40] = "*";
+		domains[39] = "flag";
+		DomainSpecificValue lessSpecificDsv = factory.create("less specific", null, domains);
+
+		assertThat(deepDsv.getOrderedDomainPattern().getOrder(), is(1L | 1L << 41));
+		assertThat(lessSpecificDsv.compareTo(deepDsv), greaterThan(0));
+		assertThat(deepDsv.compareTo(lessSpecificDsv), lessThan(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooManyDomainsAreRejected() {
+		String[] domains = new String[AbstractDomainSpecificValueFactory.MAX_DOMAINS + 1];
+		Arrays.fill(domains, "*");
+		factory.create("value", null, domains);
+	}
 }
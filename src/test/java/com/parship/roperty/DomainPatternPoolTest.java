@@ -0,0 +1,59 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class DomainPatternPoolTest {
+
+    private final DomainPatternPool pool = new DomainPatternPool();
+
+    @Test
+    public void samePatternStringGivesSameInstance() {
+        OrderedDomainPattern pattern = pool.get("de|DE|", 7);
+        assertThat(pool.get("de|DE|", 7), sameInstance(pattern));
+        assertThat(pattern.getMatcher(), sameInstance(pool.get("de|DE|", 7).getMatcher()));
+        assertThat(pool.size(), is(1));
+    }
+
+    @Test
+    public void statisticsCountHitsAndMisses() {
+        pool.get("de|", 3);
+        pool.get("de|", 3);
+        pool.get("*|*|google|", 9);
+        assertThat(pool.getHits(), is(1L));
+        assertThat(pool.getMisses(), is(2L));
+        assertThat(pool.toString(), is("DomainPatternPool{size=2, hits=1, misses=2}"));
+        pool.clear();
+        assertThat(pool.toString(), is("DomainPatternPool{size=0, hits=0, misses=0}"));
+    }
+
+    @Test
+    public void factoriesSharePooledPatterns() {
+        DomainSpecificValue dsv1 = new DefaultDomainSpecificValueFactory().create("value1", null, "pool", "*", "test");
+        DomainSpecificValue dsv2 = new DomainSpecificValueFactoryWithStringInterning().create("value2", null, "pool", "*", "test");
+        assertThat(dsv1.getOrderedDomainPattern(), sameInstance(dsv2.getOrderedDomainPattern()));
+        assertThat(dsv1.matches("pool|any|test|"), is(true));
+        assertThat(dsv1.matches("pool|any|other|"), is(false));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class DomainSchemaTest {
+
+    @Test
+    public void domainsAreAssignedSlotsInOrder() {
+        DomainSchema schema = DomainSchema.of("country", "language", "partner");
+        assertThat(schema.size(), is(3));
+        assertThat(schema.slotOf("country"), is(0));
+        assertThat(schema.slotOf("partner"), is(2));
+        assertThat(schema.slotOf("unknown"), is(-1));
+        assertThat(schema.getDomain(1), is("language"));
+        assertThat(schema, contains("country", "language", "partner"));
+        assertThat(schema.toString(), is("[country, language, partner]"));
+    }
+
+    @Test
+    public void addingDomainsCreatesANewVersion() {
+        DomainSchema schema = DomainSchema.of("country");
+        DomainSchema extended = schema.withDomains("language");
+        assertThat(schema.getDomains(), contains("country"));
+        assertThat(extended.getDomains(), contains("country", "language"));
+        assertThat(extended.getVersion(), is(schema.getVersion() + 1));
+        assertThat(DomainSchema.EMPTY.getVersion(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void domainsMustNotBeEmpty() {
+        DomainSchema.of("country", "");
+    }
+
+    @Test
+    public void domainValuesAreResolvedBySlot() {
+        DomainSchema schema = DomainSchema.of(asList("country", "language"));
+        assertThat(schema.resolve(new MapBackedDomainResolver().set("country", "DE")), arrayContaining("DE", ""));
+    }
+
+    @Test
+    public void indexedResolversFillAllSlotsAtOnce() {
+        DomainSchema schema = DomainSchema.of("country", "language");
+        IndexedDomainResolver resolver = new IndexedDomainResolver() {
+            @Override
+            public void resolve(final DomainSchema domainSchema, final String[] domainValues) {
+                domainValues[0] = "AT";
+                domainValues[1] = "de";
+            }
+
+            @Override
+            public String getDomainValue(final DomainSchema domainSchema, final int slot) {
+                return slot == 0 ? "AT" : "de";
+            }
+
+            @Override
+            public String getDomainValue(final String domain) {
+                throw new AssertionError("values are resolved by slot");
+            }
+
+            @Override
+            public Collection<String> getActiveChangeSets() {
+                return Collections.emptyList();
+            }
+        };
+        assertThat(schema.resolve(resolver), arrayContaining("AT", "de"));
+        KeyValues keyValues = new KeyValues(new DefaultDomainSpecificValueFactory());
+        keyValues.put("AT value", "AT");
+        assertThat(keyValues.get(schema, null, resolver), is("AT value"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void domainValuesMustNotContainPipe() {
+        DomainSchema.of("country").resolve(new MapBackedDomainResolver().set("country", "a|b"));
+    }
+
+    @Test
+    public void ropertyPublishesANewSchemaOnAddDomains() {
+        RopertyImpl roperty = new RopertyImpl("country");
+        DomainSchema schema = roperty.getDomainSchema();
+        roperty.addDomains("language");
+        assertThat(schema.getDomains(), contains("country"));
+        assertThat(roperty.getDomainSchema().getDomains(), contains("country", "language"));
+        assertThat(roperty.getDomainSchema(), sameInstance(roperty.getDomainSchema()));
+    }
+}
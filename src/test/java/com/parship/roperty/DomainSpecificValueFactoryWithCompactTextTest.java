@@ -0,0 +1,88 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class DomainSpecificValueFactoryWithCompactTextTest {
+
+    private static final String RUSSIAN = "Специальный перевод для партнёрского аккаунта google. ";
+
+    private final DomainSpecificValueFactoryWithCompactText factory = new DomainSpecificValueFactoryWithCompactText(16, 256, 4);
+
+    @Test
+    public void shortTextsAreKeptAsStrings() {
+        DomainSpecificValue dsv = factory.create("short", null, "de");
+        assertThat(dsv.getStoredValue(), instanceOf(String.class));
+        assertThat((String)dsv.getValue(), is("short"));
+    }
+
+    @Test
+    public void largeTextsAreStoredAsUtf8AndDecodedOnGet() {
+        DomainSpecificValue dsv = factory.create(RUSSIAN, null, "ru");
+        assertThat(dsv.getStoredValue(), instanceOf(CompactText.class));
+        CompactText text = (CompactText)dsv.getStoredValue();
+        assertThat(text.isCompressed(), is(false));
+        assertThat((String)dsv.getValue(), is(RUSSIAN));
+        assertThat(dsv.toString(), is("DomainSpecificValue{pattern=\"ru|\", ordering=3, value=\"" + RUSSIAN + "\"}"));
+    }
+
+    @Test
+    public void hugeTextsAreCompressed() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append(RUSSIAN);
+        }
+        String huge = builder.toString();
+        DomainSpecificValue dsv = factory.create(huge, null);
+        CompactText text = (CompactText)dsv.getStoredValue();
+        assertThat(text.isCompressed(), is(true));
+        assertThat(text.getStoredSize(), lessThan(huge.length()));
+        assertThat((String)dsv.getValue(), is(huge));
+    }
+
+    @Test
+    public void equalTextsShareTheirBytes() {
+        DomainSpecificValue dsv1 = factory.create(new String(RUSSIAN), null, "ru");
+        DomainSpecificValue dsv2 = factory.create(new String(RUSSIAN), null, "ua");
+        assertThat(dsv1.getStoredValue(), sameInstance(dsv2.getStoredValue()));
+    }
+
+    @Test
+    public void decodedTextsAreCached() {
+        DomainSpecificValue dsv = factory.create(RUSSIAN, null);
+        assertThat(dsv.getValue(), sameInstance(dsv.getValue()));
+    }
+
+    @Test
+    public void changingAValueKeepsItEncoded() {
+        KeyValues keyValues = new KeyValues(factory);
+        keyValues.put(RUSSIAN);
+        keyValues.put(RUSSIAN + RUSSIAN);
+        DomainSpecificValue dsv = keyValues.getDomainSpecificValues().iterator().next();
+        assertThat(dsv.getStoredValue(), instanceOf(CompactText.class));
+        assertThat((String)keyValues.getDefaultValue(), is(RUSSIAN + RUSSIAN));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class DomainSpecificValueFactoryWithDeduplicationTest {
+
+    private final DomainSpecificValueFactoryWithDeduplication factory = new DomainSpecificValueFactoryWithDeduplication();
+
+    @Test
+    public void factoryCreatesCorrectDSVForOverriddenKey() {
+        DomainSpecificValue dsv = factory.create("overriddenValue", null, "DE", "de_DE");
+        assertThat((String)dsv.getValue(), is("overriddenValue"));
+        assertThat(dsv.getPatternStr(), is("DE|de_DE|"));
+        assertThat(factory.create("value", null).getPatternStr(), is(""));
+    }
+
+    @Test
+    public void equalStringsAreShared() {
+        String value1 = new String("testString");
+        String value2 = new String("testString");
+        DomainSpecificValue dsv1 = factory.create(value1, new String("changeSet"), "DE");
+        DomainSpecificValue dsv2 = factory.create(value2, new String("changeSet"), "AT");
+        assertThat(dsv1.getValue(), sameInstance(dsv2.getValue()));
+        assertThat(dsv1.getChangeSet(), sameInstance(dsv2.getChangeSet()));
+        assertThat(dsv1.getValue() == value1.intern(), is(false));
+    }
+
+    @Test
+    public void poolReportsHitRate() {
+        factory.create(new String("a"), null);
+        factory.create(new String("a"), null);
+        factory.create(new String("b"), null);
+        factory.create(new String("a"), null);
+        DeduplicationPool pool = factory.getValuePool();
+        assertThat(pool.getHits(), is(2L));
+        assertThat(pool.getMisses(), is(2L));
+        assertThat(pool.getHitRate(), closeTo(0.5, 0.001));
+    }
+
+    @Test
+    public void poolSizeIsLimited() {
+        DeduplicationPool pool = new DeduplicationPool(DeduplicationStrategy.stringsOnly(), 1);
+        String first = pool.deduplicate(new String("first"));
+        String second = new String("second");
+        assertThat(pool.deduplicate(second), sameInstance(second));
+        assertThat(pool.deduplicate(new String("second")), not(sameInstance(second)));
+        assertThat(pool.deduplicate(new String("first")), sameInstance(first));
+        assertThat(pool.getRejections(), is(2L));
+        assertThat(pool.size(), is(1));
+    }
+
+    @Test
+    public void nonStringValuesAreDeduplicatedByStrategy() {
+        DomainSpecificValueFactoryWithDeduplication bigDecimalFactory =
+            new DomainSpecificValueFactoryWithDeduplication(DeduplicationStrategy.immutableTypes(BigDecimal.class), 10);
+        BigDecimal value = new BigDecimal("1.5");
+        assertThat(bigDecimalFactory.create(new BigDecimal("1.5"), null).getValue(), sameInstance(bigDecimalFactory.create(value, null).getValue()));
+        String notPooled = new String("text");
+        assertThat(bigDecimalFactory.create(notPooled, null).getValue(), sameInstance(notPooled));
+    }
+
+    @Test
+    public void customEquivalenceIsUsed() {
+        DeduplicationPool pool = new DeduplicationPool(new DeduplicationStrategy() {
+            @Override
+            public boolean isDeduplicable(final Object value) {
+                return value instanceof String;
+            }
+
+            @Override
+            public boolean equivalent(final Object value, final Object other) {
+                return ((String)value).equalsIgnoreCase((String)other);
+            }
+
+            @Override
+            public int hash(final Object value) {
+                return ((String)value).toLowerCase().hashCode();
+            }
+        }, 10);
+        String value = pool.deduplicate("Value");
+        assertThat(pool.deduplicate("VALUE"), sameInstance(value));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class DomainSpecificValueFactoryWithOffHeapValuesTest {
+
+    private final DomainSpecificValueFactoryWithOffHeapValues factory = new DomainSpecificValueFactoryWithOffHeapValues(16);
+
+    @Test
+    public void textsAreStoredOffHeapAndDecodedOnGet() {
+        DomainSpecificValue dsv = factory.create("Größe", null, "de");
+        assertThat(dsv.getStoredValue(), instanceOf(ArenaValue.class));
+        assertThat((String)dsv.getValue(), is("Größe"));
+        assertThat(factory.getUsedBytes(), is(7L));
+        assertThat(factory.getAllocatedBytes(), is(16L));
+    }
+
+    @Test
+    public void decodedTextsAreCached() {
+        DomainSpecificValue dsv = factory.create("cached text", null);
+        assertThat(dsv.getValue(), sameInstance(dsv.getValue()));
+    }
+
+    @Test
+    public void otherValuesStayOnHeap() {
+        Integer value = 4711;
+        DomainSpecificValue dsv = factory.create(value, null);
+        assertThat(dsv.getStoredValue(), sameInstance(value));
+        assertThat(factory.getUsedBytes(), is(0L));
+    }
+
+    @Test
+    public void textsLargerThanAChunkGetTheirOwnChunk() {
+        String large = "a text larger than one chunk";
+        DomainSpecificValue small = factory.create("small", null);
+        DomainSpecificValue dsv = factory.create(large, null);
+        assertThat((String)dsv.getValue(), is(large));
+        assertThat((String)small.getValue(), is("small"));
+        assertThat(factory.getAllocatedBytes(), is(16L + large.length()));
+    }
+
+    @Test
+    public void changeSetsAreShared() {
+        DomainSpecificValue dsv1 = factory.create("value1", new String("changeSet"), "de");
+        DomainSpecificValue dsv2 = factory.create("value2", new String("changeSet"), "en");
+        assertThat(dsv1.getChangeSet(), sameInstance(dsv2.getChangeSet()));
+    }
+
+    @Test
+    public void reloadStartsANewGeneration() {
+        factory.create("old generation", null);
+        ValuesStore valuesStore = new ValuesStore();
+        valuesStore.setDomainSpecificValueFactory(factory);
+        valuesStore.setPersistence(mock(Persistence.class));
+        valuesStore.reload();
+        assertThat(factory.getGeneration(), is(1));
+        assertThat(factory.getUsedBytes(), is(0L));
+    }
+
+    @Test
+    public void valuesCanBeChanged() {
+        KeyValues keyValues = new KeyValues(factory);
+        keyValues.put("first", "de");
+        keyValues.put("second", "de");
+        assertThat((String)keyValues.getDomainSpecificValues().iterator().next().getValue(), is("second"));
+    }
+
+    @Test
+    public void valuesReusedByAReloadAreCopiedIntoTheNewGeneration() {
+        KeyValues keyValues = new KeyValues(factory);
+        DomainSpecificValue dsv = keyValues.put("reused", "de");
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.reload(any(Map.class), any(), eq(factory))).thenReturn(Collections.singletonMap("key", keyValues));
+        ValuesStore valuesStore = new ValuesStore();
+        valuesStore.setDomainSpecificValueFactory(factory);
+        valuesStore.setPersistence(persistence);
+        valuesStore.reload();
+        assertThat(((ArenaValue)dsv.getStoredValue()).getGeneration(), is(1));
+        assertThat((String)dsv.getValue(), is("reused"));
+        assertThat(dsv.getVersion(), is(0L));
+        assertThat(factory.getUsedBytes(), is(6L));
+    }
+
+    @Test
+    public void arenaValuesAreComparedByTheirBytes() {
+        Object first = factory.create("same", null).getStoredValue();
+        factory.startGeneration();
+        Object second = factory.create("same", null).getStoredValue();
+        Object other = factory.create("other", null).getStoredValue();
+        assertThat(first, is(second));
+        assertThat(first.hashCode(), is(second.hashCode()));
+        assertThat(first, not(other));
+    }
+}
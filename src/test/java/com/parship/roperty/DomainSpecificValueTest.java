@@ -163,4 +163,14 @@ public class DomainSpecificValueTest {
         assertThat(hashCode, is(6952339));
     }
 
+
+	@Test
+	public void everyChangeOfTheValueIncrementsTheVersion() {
+		DomainSpecificValue dsv = new DomainSpecificValue(new OrderedDomainPattern("pattern", 45), "value");
+		assertThat(dsv.getVersion(), is(0L));
+		dsv.setValue("changed");
+		dsv.setValue("changed again");
+		assertThat(dsv.getVersion(), is(2L));
+		assertThat(dsv.getValue(), is("changed again"));
+	}
 }
@@ -0,0 +1,97 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class DomainSymbolTableTest {
+
+    private final DomainSymbolTable table = new DomainSymbolTable();
+
+    @Test
+    public void wildcardHasReservedSymbol() {
+        assertThat(table.symbolFor("*"), is(DomainSymbolTable.WILDCARD));
+        assertThat(table.lookup("*"), is(DomainSymbolTable.UNKNOWN));
+    }
+
+    @Test
+    public void symbolsAreStable() {
+        int de = table.symbolFor("de");
+        int google = table.symbolFor("google");
+        assertThat(de, not(google));
+        assertThat(table.symbolFor("de"), is(de));
+        assertThat(table.lookup("de"), is(de));
+        assertThat(table.lookup("unknown"), is(DomainSymbolTable.UNKNOWN));
+        assertThat(table.size(), is(2));
+    }
+
+    @Test
+    public void patternsAreEncodedOnce() {
+        OrderedDomainPattern pattern = new OrderedDomainPattern("de|*|google|", 11);
+        int[] encoded = table.encode(pattern);
+        assertThat(encoded.length, is(3));
+        assertThat(encoded[0], is(table.lookup("de")));
+        assertThat(encoded[1], is(DomainSymbolTable.WILDCARD));
+        assertThat(encoded[2], is(table.lookup("google")));
+        assertThat(table.encode(pattern), sameInstance(encoded));
+        assertThat(table.encode(new OrderedDomainPattern("", 1)).length, is(0));
+    }
+
+    @Test
+    public void matchingIsEquivalentToStringMatching() {
+        int[] pattern = table.encode(new OrderedDomainPattern("de|*|google|", 11));
+        assertThat(DomainSymbolTable.matches(pattern, table.lookup(new String[]{"de", "DE", "google", "4"})), is(true));
+        assertThat(DomainSymbolTable.matches(pattern, table.lookup(new String[]{"de", "", "google"})), is(true));
+        assertThat(DomainSymbolTable.matches(pattern, table.lookup(new String[]{"en", "DE", "google"})), is(false));
+        assertThat(DomainSymbolTable.matches(pattern, table.lookup(new String[]{"de", "DE"})), is(false));
+        assertThat(DomainSymbolTable.matches(new int[0], new int[0]), is(true));
+    }
+
+    @Test
+    public void keyValuesMatchBySymbols() {
+        DefaultDomainSpecificValueFactory factory = new DefaultDomainSpecificValueFactory();
+        KeyValues keyValues = new KeyValues(factory);
+        keyValues.put("default");
+        keyValues.put("google", "*", "*", "google");
+        keyValues.put("german", "de");
+        MapBackedDomainResolver resolver = new MapBackedDomainResolver().set("language", "de").set("country", "AT").set("partner", "google");
+        assertThat(keyValues.<String>get(asList("language", "country", "partner"), null, resolver), is("google"));
+        assertThat(keyValues.<String>get(asList("language", "country"), null, resolver), is("german"));
+        resolver.set("language", "fr");
+        assertThat(keyValues.<String>get(asList("language", "country"), null, resolver), is("default"));
+        assertThat(factory.getDomainSymbolTable().lookup("google"), not(DomainSymbolTable.UNKNOWN));
+    }
+
+    @Test
+    public void patternsWithPartialWildcardsAreNotEncoded() {
+        assertThat(table.encode(new OrderedDomainPattern("d*|DE|", 7)), nullValue());
+        assertThat(table.encode(new OrderedDomainPattern("de|*|", 3)), notNullValue());
+        assertThat(DomainSymbolTable.isPartialWildcard("d*"), is(true));
+        assertThat(DomainSymbolTable.isPartialWildcard("*"), is(false));
+        assertThat(DomainSymbolTable.isPartialWildcard("de"), is(false));
+    }
+}
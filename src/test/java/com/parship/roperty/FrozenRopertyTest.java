@@ -0,0 +1,110 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class FrozenRopertyTest {
+
+    private final RopertyImpl roperty = new RopertyImpl("country", "language");
+    private final MapBackedDomainResolver resolver = new MapBackedDomainResolver().set("country", "DE").set("language", "de");
+
+    @Test
+    public void frozenRopertyReturnsTheSameValues() {
+        roperty.set("key", "default", "description");
+        roperty.set("key", "DE", null, "DE");
+        roperty.set("key", "AT de", null, "AT", "de");
+        roperty.setWithChangeSet("key", "summer", null, "summer", "DE");
+        FrozenRoperty frozen = roperty.freeze();
+        assertThat(frozen.<String>get("key", resolver), is("DE"));
+        assertThat(frozen.<String>get(" key ", resolver), is("DE"));
+        assertThat(frozen.get("unknown", "fallback", resolver), is("fallback"));
+        resolver.addActiveChangeSets("summer");
+        assertThat(frozen.<String>get("key", resolver), is("summer"));
+        assertThat(frozen.getOrDefine("key", "other", resolver), is("summer"));
+        assertThat(frozen.getKeyValues("key").getDescription(), is("description"));
+    }
+
+    @Test
+    public void laterChangesAreNotVisible() {
+        roperty.set("key", "value", null);
+        FrozenRoperty frozen = roperty.freeze();
+        roperty.set("key", "changed", null);
+        roperty.set("new", "value", null);
+        assertThat(frozen.<String>get("key", resolver), is("value"));
+        assertThat(frozen.get("new", resolver), nullValue());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setIsNotSupported() {
+        roperty.freeze().set("key", "value", null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void removeIsNotSupported() {
+        roperty.freeze().removeKey("key");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void addDomainsIsNotSupported() {
+        roperty.freeze().addDomains("partner");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void definingAMissingKeyIsNotSupported() {
+        roperty.freeze().getOrDefine("key", "value", resolver);
+    }
+
+    @Test
+    public void reloadSwapsInANewGeneration() {
+        FrozenRoperty frozen = freezeWithReloadedValue();
+        assertThat(frozen.<String>get("key", resolver), is("value"));
+        frozen.reload();
+        assertThat(frozen.<String>get("key", resolver), is("reloaded"));
+    }
+
+    @Test
+    public void reloadOfTheSourceSwapsInANewGeneration() {
+        FrozenRoperty frozen = freezeWithReloadedValue();
+        roperty.reload();
+        assertThat(frozen.<String>get("key", resolver), is("reloaded"));
+    }
+
+    private FrozenRoperty freezeWithReloadedValue() {
+        Persistence persistence = mock(Persistence.class);
+        Map<String, KeyValues> reloaded = new HashMap<>();
+        KeyValues keyValues = new KeyValues(new DefaultDomainSpecificValueFactory());
+        keyValues.put("reloaded");
+        reloaded.put("key", keyValues);
+        when(persistence.reload(any(), any(), any())).thenReturn(reloaded);
+        roperty.setPersistence(persistence);
+        roperty.set("key", "value", null);
+        return roperty.freeze();
+    }
+}
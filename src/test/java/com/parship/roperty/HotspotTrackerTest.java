@@ -0,0 +1,90 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.parship.roperty.jmx.RopertyManager;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+
+public class HotspotTrackerTest {
+
+    private final RopertyImpl roperty = new RopertyImpl("country", "language");
+    private final MapBackedDomainResolver german = new MapBackedDomainResolver().set("country", "DE").set("language", "de");
+    private final MapBackedDomainResolver austrian = new MapBackedDomainResolver().set("country", "AT").set("language", "de");
+
+    @Test
+    public void nothingIsTrackedWhileDisabled() {
+        roperty.set("key", "value", null);
+        roperty.get("key", german);
+        assertThat(roperty.getHotspotTracker().getSampledLookups(), is(0L));
+    }
+
+    @Test
+    public void hottestKeysPatternsAndDomainVectorsAreTracked() {
+        HotspotTracker tracker = roperty.getHotspotTracker();
+        tracker.setEnabled(true);
+        tracker.setSampleRate(1);
+        roperty.set("key", "default", null);
+        roperty.set("key", "german", null, "DE");
+        roperty.set("other", "value", null);
+        assertThat(roperty.get("key", german), is("german"));
+        assertThat(roperty.get("key", german), is("german"));
+        assertThat(roperty.get("key", austrian), is("default"));
+        assertThat(roperty.get("other", austrian), is("value"));
+        assertThat(roperty.get("unknown", "fallback", austrian), is("fallback"));
+        assertThat(tracker.getSampledLookups(), is(4L));
+        assertThat(tracker.listHottestKeys(1), is("key=3"));
+        assertThat(tracker.listHottestPatterns(2), is("key -> DE|=2\nkey -> <default>=1"));
+        assertThat(tracker.listHottestDomainVectors(1), is("AT|de|=2"));
+        tracker.reset();
+        assertThat(tracker.listHottestKeys(1), is(""));
+    }
+
+    @Test
+    public void sampleRateIsRoundedUpToAPowerOfTwo() {
+        HotspotTracker tracker = new HotspotTracker();
+        tracker.setSampleRate(100);
+        assertThat(tracker.getSampleRate(), is(128));
+        tracker.setSampleRate(1);
+        assertThat(tracker.getSampleRate(), is(1));
+    }
+
+    @Test
+    public void hotspotsAreReadableThroughAnMBean() throws Exception {
+        roperty.getHotspotTracker().setSampleRate(1);
+        roperty.enableHotspotTracking("hotspotTest");
+        roperty.set("key", "value", null);
+        roperty.get("key", german);
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.parship.roperty:type=HotspotTracker,name=\"hotspotTest\"");
+        try {
+            assertThat(mbs.invoke(objectName, "listHottestKeys", new Object[] {10}, new String[] {int.class.getName()}), is("key=1"));
+        } finally {
+            RopertyManager.getInstance().unregisterHotspots("hotspotTest");
+        }
+    }
+}
@@ -32,6 +32,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -163,9 +164,41 @@ public class KeyValuesTest {
 	public void domainValuesMustNotContainPipe() {
 		DomainResolver resolverMock = mock(DomainResolver.class);
 		when(resolverMock.getDomainValue("x1")).thenReturn("abc|def");
+		keyValues.put("value", "x1value");
 		keyValues.get(Collections.singletonList("x1"), null, resolverMock);
 	}
 
+	@Test
+	public void onlyDomainsComparedByAPatternAreResolved() {
+		DomainResolver resolverMock = mock(DomainResolver.class);
+		when(resolverMock.getDomainValue("dom1")).thenReturn("other");
+		when(resolverMock.getDomainValue("dom3")).thenReturn("other");
+		keyValues.put("default");
+		keyValues.put("value", "domVal1", "domVal2");
+		keyValues.put("wildcard", "*", "*", "domVal3");
+		assertThat(keyValues.get(asList("dom1", "dom2", "dom3", "dom4"), null, resolverMock), is("default"));
+		verify(resolverMock).getDomainValue("dom1");
+		verify(resolverMock).getDomainValue("dom3");
+		verify(resolverMock, never()).getDomainValue("dom2");
+		verify(resolverMock, never()).getDomainValue("dom4");
+	}
+
+	@Test
+	public void domainsDeeperThanAllPatternsAreNotResolvedForStringMatching() {
+		DomainResolver resolverMock = mock(DomainResolver.class);
+		when(resolverMock.getDomainValue("dom1")).thenReturn("domVal1");
+		keyValues.setDomainSpecificValueFactory(new DomainSpecificValueFactory() {
+			@Override
+			public DomainSpecificValue create(final Object value, final String changeSet, final String... domainKeyParts) {
+				return new DomainSpecificValue(AbstractDomainSpecificValueFactory.calculateOrderedDomainPattern(domainKeyParts), value, changeSet);
+			}
+		});
+		keyValues.put("default");
+		keyValues.put("value", "domVal1");
+		assertThat(keyValues.get(asList("dom1", "dom2", "dom3"), null, resolverMock), is("value"));
+		verify(resolverMock, never()).getDomainValue("dom2");
+	}
+
 	@Test
 	public void resolvingToNullMatchesEmptyStringAndThatNeverMatchesSoTheRestOfTheDomainsAreIgnored() {
 		resolver = mock(DomainResolver.class);
@@ -205,4 +238,27 @@ public class KeyValuesTest {
 		assertThat(keyValues.<String>get(asList("dom1", "prefix"), null, resolver), is("valuePrefix"));
 		assertThat(keyValues.<String>get(asList("dom1", "prefixDom2"), null, resolver), is("value1"));
 	}
+
+	@Test
+	public void changingAValueKeepsTheStoredInstanceAndIncrementsItsVersion() {
+		for (KeyValues values : asList(new KeyValues(new DefaultDomainSpecificValueFactory()),
+			new CopyOnWriteKeyValuesFactory().create(new DefaultDomainSpecificValueFactory()))) {
+			DomainSpecificValue first = values.put("first", "domain");
+			DomainSpecificValue second = values.put("second", "domain");
+			assertThat(second == first, is(true));
+			assertThat(first.getValue(), is("second"));
+			assertThat(first.getVersion(), is(1L));
+			assertThat(values.getDomainSpecificValues(), hasSize(1));
+		}
+	}
+
+	@Test
+	public void valuesEncodedByAnotherSymbolTableAreMatchedByTheirPattern() {
+		DefaultDomainSpecificValueFactory otherFactory = new DefaultDomainSpecificValueFactory();
+		otherFactory.getDomainSymbolTable().symbolFor("unrelated");
+		DomainSpecificValueStorage storage = new SkipListDomainSpecificValueStorage();
+		storage.addOrChange(otherFactory.create("value", null, "domain1"));
+		KeyValues foreignValues = new KeyValues(new DefaultDomainSpecificValueFactory(), storage);
+		assertThat(foreignValues.get(asList("domain1"), "default", resolver), is("value"));
+	}
 }
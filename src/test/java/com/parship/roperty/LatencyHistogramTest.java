@@ -0,0 +1,66 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMeanNanos(), is(0L));
+        assertThat(histogram.getPercentileNanos(99), is(0L));
+    }
+
+    @Test
+    public void percentilesAreReportedAsUpperBoundOfTheirPowerOfTwoBucket() {
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5000);
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getPercentileNanos(50), is(127L));
+        assertThat(histogram.getPercentileNanos(99), is(127L));
+        assertThat(histogram.getPercentileNanos(100), is(8191L));
+        assertThat(histogram.getMaxNanos(), is(5000L));
+        assertThat(histogram.getMeanNanos(), is(149L));
+    }
+
+    @Test
+    public void negativeDurationsAreRecordedAsZero() {
+        histogram.record(-10);
+        assertThat(histogram.getPercentileNanos(50), is(0L));
+        assertThat(histogram.getTotalNanos(), is(0L));
+    }
+
+    @Test
+    public void resetClearsAllBuckets() {
+        histogram.record(100);
+        histogram.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getPercentileNanos(50), is(0L));
+        assertThat(histogram.getMaxNanos(), is(0L));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+
+public class LookupPlannerTest {
+
+    private static final String[] DOMAINS = {"country", "language", "partner"};
+
+    private final LookupPlanner planner = LookupPlanner.getInstance();
+
+    @After
+    public void after() {
+        planner.setEnabled(true);
+        planner.setMinimumSize(LookupPlanner.DEFAULT_MINIMUM_SIZE);
+    }
+
+    @Test
+    public void smallKeysAreScannedLinearly() {
+        KeyValues keyValues = new KeyValues(new DefaultDomainSpecificValueFactory());
+        keyValues.put("default");
+        keyValues.put("DE", "DE");
+        keyValues.put("AT", "AT");
+        assertThat(keyValues.get(DomainSchema.of(DOMAINS), null, resolver("AT", "de", "p")), is("AT"));
+        assertThat(keyValues.getLookupPlan(), is(LookupPlan.LINEAR));
+    }
+
+    @Test
+    public void wideKeysWithManyFirstDomainValuesAreIndexed() {
+        KeyValues keyValues = wideKeyValues(new Random(1), 200, 0.1);
+        assertThat(keyValues.get(DomainSchema.of(DOMAINS), null, resolver("c1", "l1", "p1")), notNullValue());
+        assertThat(keyValues.getLookupPlan(), is(LookupPlan.INDEXED));
+        assertThat(keyValues.getStatistics().getAverageCandidatesScanned(), lessThan(20.0));
+    }
+
+    @Test
+    public void keysStartingWithWildcardsAreNotIndexed() {
+        KeyValues keyValues = wideKeyValues(new Random(1), 200, 1.0);
+        keyValues.get(DomainSchema.of(DOMAINS), null, resolver("c1", "l1", "p1"));
+        assertThat(keyValues.getLookupPlan(), is(LookupPlan.LINEAR));
+    }
+
+    @Test
+    public void indexedLookupsFindTheSameValuesAsLinearScans() {
+        Random random = new Random(4711);
+        for (int round = 0; round < 20; round++) {
+            long seed = random.nextLong();
+            KeyValues indexed = wideKeyValues(new Random(seed), 100 + random.nextInt(200), random.nextDouble() * 0.5);
+            assertThat(indexed.replan(), is(LookupPlan.INDEXED));
+            for (int i = 0; i < 200; i++) {
+                DomainResolver resolver = resolver("c" + random.nextInt(40), "l" + random.nextInt(5), "p" + random.nextInt(10));
+                Object expected = scanLinearly(indexed, resolver);
+                assertThat(indexed.get(DomainSchema.of(DOMAINS), null, resolver), is(expected));
+            }
+        }
+    }
+
+    @Test
+    public void indexedLookupsFindTheSameValuesAsLinearScansWithPartialWildcards() {
+        Random random = new Random(4711);
+        KeyValues keyValues = wideKeyValues(random, 200, 0.1);
+        for (int i = 0; i < 10; i++) {
+            keyValues.put("partial" + i, "c" + random.nextInt(4) + "*", random.nextBoolean() ? "*" : "l*");
+        }
+        keyValues.put("z", "z*");
+        assertThat(keyValues.replan(), is(LookupPlan.INDEXED));
+        assertThat(keyValues.get(DomainSchema.of(DOMAINS), null, resolver("zz", "none", "none")), is("z"));
+        for (int i = 0; i < 500; i++) {
+            DomainResolver resolver = resolver("c" + random.nextInt(40), "l" + random.nextInt(5), "p" + random.nextInt(10));
+            Object expected = scanLinearly(keyValues, resolver);
+            assertThat(keyValues.get(DomainSchema.of(DOMAINS), null, resolver), is(expected));
+        }
+    }
+
+    @Test
+    public void changesInvalidateTheIndex() {
+        KeyValues keyValues = wideKeyValues(new Random(1), 200, 0.1);
+        DomainResolver resolver = resolver("new", "l1", "p1");
+        assertThat(keyValues.get(DomainSchema.of(DOMAINS), null, resolver), is("default"));
+        assertThat(keyValues.getLookupPlan(), is(LookupPlan.INDEXED));
+        keyValues.put("new value", "new");
+        assertThat(keyValues.get(DomainSchema.of(DOMAINS), null, resolver), is("new value"));
+        keyValues.remove(null, new String[] {"new"});
+        assertThat(keyValues.get(DomainSchema.of(DOMAINS), null, resolver), is("default"));
+    }
+
+    @Test
+    public void disabledPlannerFallsBackToLinearScansOnReplan() {
+        KeyValues keyValues = wideKeyValues(new Random(1), 200, 0.1);
+        assertThat(keyValues.replan(), is(LookupPlan.INDEXED));
+        planner.setEnabled(false);
+        assertThat(keyValues.replan(), is(LookupPlan.LINEAR));
+    }
+
+    @Test
+    public void statisticsDescribeTheShapeOfTheValues() {
+        KeyValues keyValues = new KeyValues(new DefaultDomainSpecificValueFactory());
+        keyValues.put("default");
+        keyValues.put("a", "DE", "de");
+        keyValues.put("b", "AT", "*");
+        keyValues.put("c", "*", "de");
+        keyValues.put("d", "D*", "de");
+        KeyValuesStatistics statistics = keyValues.getStatistics();
+        assertThat(statistics.getValueCount(), is(5));
+        assertThat(statistics.getOverrideCount(), is(4));
+        assertThat(statistics.getWildcardRatio(), closeTo(3.0 / 8, 0.001));
+        assertThat(statistics.getCardinality(0), is(2));
+        assertThat(statistics.getCardinality(1), is(1));
+        assertThat(statistics.getUnindexedCount(), is(3));
+    }
+
+    @Test
+    public void indexIsOnlyChosenWhenItAtLeastHalvesTheCost() {
+        assertThat(planner.choose(new KeyValuesStatistics(100, 99, 0, new int[] {50}, 1, 0, LookupPlan.LINEAR)), is(LookupPlan.INDEXED));
+        assertThat(planner.choose(new KeyValuesStatistics(100, 99, 0, new int[] {2}, 1, 0, LookupPlan.LINEAR)), is(LookupPlan.LINEAR));
+        assertThat(planner.choose(new KeyValuesStatistics(100, 99, 0, new int[] {50}, 1, 3.0, LookupPlan.LINEAR)), is(LookupPlan.LINEAR));
+        assertThat(planner.choose(new KeyValuesStatistics(10, 9, 0, new int[] {9}, 1, 0, LookupPlan.LINEAR)), is(LookupPlan.LINEAR));
+    }
+
+    private static KeyValues wideKeyValues(final Random random, final int overrides, final double wildcardRatio) {
+        KeyValues keyValues = new KeyValues(new DefaultDomainSpecificValueFactory());
+        keyValues.put("default");
+        for (int i = 0; i < overrides; i++) {
+            String country = random.nextDouble() < wildcardRatio ? "*" : "c" + random.nextInt(40);
+            String language = random.nextBoolean() ? "*" : "l" + random.nextInt(5);
+            if (random.nextBoolean()) {
+                keyValues.put("value" + i, country, language, "p" + random.nextInt(10));
+            } else {
+                keyValues.put("value" + i, country, language);
+            }
+        }
+        return keyValues;
+    }
+
+    private static Object scanLinearly(final KeyValues keyValues, final DomainResolver resolver) {
+        StringBuilder domain = new StringBuilder();
+        for (String name : DOMAINS) {
+            domain.append(resolver.getDomainValue(name)).append('|');
+        }
+        for (DomainSpecificValue value : keyValues.getDomainSpecificValues()) {
+            if (value.matches(domain.toString())) {
+                return value.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static DomainResolver resolver(final String country, final String language, final String partner) {
+        return new MapBackedDomainResolver().set("country", country).set("language", language).set("partner", partner);
+    }
+}
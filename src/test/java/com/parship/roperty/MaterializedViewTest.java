@@ -0,0 +1,116 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+public class MaterializedViewTest {
+
+    private final RopertyImpl roperty = new RopertyImpl("country");
+    private final DomainResolver resolver = spy(new MapBackedDomainResolver().set("country", "DE"));
+    private final MaterializedView view = new MaterializedView(roperty, resolver);
+
+    @After
+    public void after() {
+        view.close();
+    }
+
+    @Test
+    public void valuesAreResolvedOnce() {
+        roperty.set("key", "default", null);
+        roperty.set("key", "DE", null, "DE");
+        assertThat(view.<String>get("key"), is("DE"));
+        assertThat(view.<String>get(" key "), is("DE"));
+        verify(resolver, times(1)).getDomainValue("country");
+        assertThat(view.get("unknown", "fallback"), is("fallback"));
+        assertThat(view.get("unknown"), nullValue());
+        assertThat(view.size(), is(2));
+    }
+
+    @Test
+    public void changesInvalidateTheKey() {
+        roperty.set("key", "default", null);
+        assertThat(view.<String>get("key"), is("default"));
+        roperty.set("key", "DE", null, "DE");
+        assertThat(view.<String>get("key"), is("DE"));
+        roperty.remove("key", "DE");
+        assertThat(view.<String>get("key"), is("default"));
+        roperty.removeKey("key");
+        assertThat(view.get("key"), nullValue());
+    }
+
+    @Test
+    public void changeSetsInvalidateTheirKeys() {
+        DomainResolver summerResolver = new MapBackedDomainResolver().set("country", "DE").addActiveChangeSets("summer");
+        try (MaterializedView summerView = new MaterializedView(roperty, summerResolver)) {
+            roperty.set("key", "default", null);
+            roperty.setWithChangeSet("key", "summer", null, "summer");
+            assertThat(summerView.<String>get("key"), is("summer"));
+            roperty.removeChangeSet("summer");
+            assertThat(summerView.<String>get("key"), is("default"));
+        }
+    }
+
+    @Test
+    public void reloadInvalidatesAllKeys() {
+        Persistence persistence = mock(Persistence.class);
+        roperty.setPersistence(persistence);
+        roperty.set("key", "value", null);
+        assertThat(view.<String>get("key"), is("value"));
+        Map<String, KeyValues> values = new HashMap<>();
+        KeyValues keyValues = new KeyValues(new DefaultDomainSpecificValueFactory());
+        keyValues.put("replaced");
+        values.put("key", keyValues);
+        roperty.setKeyValuesMap(values);
+        assertThat(view.<String>get("key"), is("replaced"));
+        roperty.reload();
+        assertThat(view.size(), is(0));
+    }
+
+    @Test
+    public void allKeysAreMaterializedInParallel() {
+        for (int i = 0; i < 1000; i++) {
+            roperty.set("key" + i, "value" + i, null);
+        }
+        view.materializeAll();
+        assertThat(view.size(), is(1000));
+        assertThat(view.<String>get("key500"), is("value500"));
+    }
+
+    @Test
+    public void closedViewsAreNotNotified() {
+        roperty.set("key", "value", null);
+        view.get("key");
+        view.close();
+        roperty.set("key", "changed", null);
+        assertThat(view.size(), is(0));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+
+public class MinimalPerfectHashKeyIndexTest {
+
+    private static String[] keys(final int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = "com.parship.key." + i;
+        }
+        return keys;
+    }
+
+    @Test
+    public void everyKeyIsFoundAtItsPosition() {
+        for (int count : new int[]{1, 2, 3, 7, 100, 50000}) {
+            String[] keys = keys(count);
+            MinimalPerfectHashKeyIndex index = new MinimalPerfectHashKeyIndex(keys);
+            for (int i = 0; i < count; i++) {
+                assertThat(index.indexOf(keys[i]), is(i));
+            }
+        }
+    }
+
+    @Test
+    public void unknownKeysAreNotFound() {
+        MinimalPerfectHashKeyIndex index = new MinimalPerfectHashKeyIndex(keys(1000));
+        for (int i = 1000; i < 2000; i++) {
+            assertThat(index.indexOf("com.parship.key." + i), is(-1));
+        }
+        assertThat(new MinimalPerfectHashKeyIndex(new String[0]).indexOf("key"), is(-1));
+    }
+
+    @Test
+    public void keysWithEqualStringHashCodesAreSeparated() {
+        MinimalPerfectHashKeyIndex index = new MinimalPerfectHashKeyIndex(new String[]{"Aa", "BB", "AaAa", "BBBB", "AaBB"});
+        assertThat(index.indexOf("Aa"), is(0));
+        assertThat(index.indexOf("BB"), is(1));
+        assertThat(index.indexOf("AaBB"), is(4));
+    }
+}
@@ -62,4 +62,11 @@ public class RopertyChangeSetTest {
 
 		verify(persistenceMock).store(eq("key"), ArgumentMatchers.any(KeyValues.class), eq("changeSet"));
 	}
+
+	@Test
+	public void valuesCanBeSetWithANullChangeSet() {
+		roperty.setWithChangeSet("key", "value", "descr", null);
+
+		assertThat(roperty.<String>get("key", mock(DomainResolver.class)), is("value"));
+	}
 }
@@ -22,8 +22,15 @@ import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,16 +39,21 @@ import org.mockito.MockitoAnnotations;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -211,6 +223,61 @@ public class RopertyImplTest {
         assertThat(value, is(text));
     }
 
+    @Test
+    public void concurrentDefinitionsOfTheSameKeyStoreTheDefaultOnlyOnce() throws Exception {
+        ropertyImpl.setPersistence(persistenceMock);
+        doAnswer(invocation -> {
+            Thread.sleep(50);
+            return null;
+        }).when(persistenceMock).store(eq("newKey"), any(KeyValues.class), eq(""));
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return ropertyImpl.getOrDefine("newKey", "default", new MapBackedDomainResolver());
+            }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(), is("default"));
+        }
+        executor.shutdown();
+        verify(persistenceMock, times(1)).store(eq("newKey"), any(KeyValues.class), eq(""));
+    }
+
+    @Test
+    public void waitingDefinitionsFailWhenTheFirstDefinitionFails() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Future<String>> follower = new ArrayList<>();
+        ropertyImpl.setKeyValuesFactory(domainSpecificValueFactory -> {
+            follower.add(executor.submit(() -> ropertyImpl.getOrDefine("failing", "default", new MapBackedDomainResolver())));
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("definition failed");
+        });
+        try {
+            ropertyImpl.getOrDefine("failing", "default", new MapBackedDomainResolver());
+            throw new AssertionError("the first definition must fail");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("definition failed"));
+        }
+        try {
+            follower.get(0).get();
+            throw new AssertionError("the waiting definition must fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(CompletionException.class));
+            assertThat(e.getCause().getCause().getMessage(), is("definition failed"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test(expected = NullPointerException.class)
     public void nullDomainsAreNotAllowed() {
         ropertyImpl.addDomains((String[]) null);
@@ -283,8 +350,9 @@ public class RopertyImplTest {
     public void domainValuesAreRequestedFromAResolver() {
         ropertyWithResolver.getRoperty().addDomains("domain1", "domain2");
         DomainResolver mockResolver = domainResolverMock;
+        when(mockResolver.getDomainValue("domain1")).thenReturn("domVal1");
         ropertyWithResolver = new RopertyWithResolver(ropertyImpl, mockResolver);
-        ropertyWithResolver.set("key", "value", null);
+        ropertyWithResolver.set("key", "value", null, "domVal1", "domVal2");
         ropertyWithResolver.get("key");
         verify(mockResolver).getDomainValue("domain1");
         verify(mockResolver).getDomainValue("domain2");
@@ -292,6 +360,66 @@ public class RopertyImplTest {
         verifyNoMoreInteractions(mockResolver);
     }
 
+    @Test
+    public void noDomainValuesAreRequestedForAKeyWithOnlyADefaultValue() {
+        ropertyImpl.addDomains("domain1", "domain2");
+        DomainResolver mockResolver = domainResolverMock;
+        ropertyWithResolver = new RopertyWithResolver(ropertyImpl, mockResolver);
+        ropertyImpl.setAccessTracking(true);
+        ropertyWithResolver.set("key", "value", null);
+        assertThat(ropertyWithResolver.get("key"), is("value"));
+        verifyNoMoreInteractions(mockResolver);
+        assertThat(ropertyImpl.getKeyValues("key").getDefaultOnlyLookups(), is(1L));
+        assertThat(ropertyImpl.getKeyValues("key").getResolvedLookups(), is(0L));
+    }
+
+    @Test
+    public void lookupsAreOnlyCountedWithAccessTracking() {
+        ropertyImpl.addDomains("domain1");
+        ropertyImpl.set("key", "value", null, "domain1");
+        ropertyImpl.getValuesStore().getOrCreateKeyValues("empty", null);
+        MapBackedDomainResolver resolver = new MapBackedDomainResolver().set("domain1", "domain1");
+        ropertyImpl.get("key", resolver);
+        assertThat(ropertyImpl.getKeyValues("key").getLookups(), is(0L));
+        ropertyImpl.setAccessTracking(true);
+        ropertyImpl.get("key", resolver);
+        ropertyImpl.get("empty", resolver);
+        assertThat(ropertyImpl.getKeyValues("key").getResolvedLookups(), is(1L));
+        assertThat(ropertyImpl.getKeyValues("empty").getResolvedLookups(), is(0L));
+        assertThat(ropertyImpl.getKeyValues("empty").getLastAccess(), greaterThan(0L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void findingUnusedKeysRequiresAccessTracking() {
+        ropertyImpl.findUnusedKeys();
+    }
+
+    @Test
+    public void unusedKeysAreKeysNeverRead() {
+        ropertyImpl.setAccessTracking(true);
+        ropertyImpl.set("read", "value", null);
+        ropertyImpl.set("unread2", "value", null);
+        ropertyImpl.set("unread1", "value", null);
+        ropertyImpl.get("read", null);
+        assertThat(ropertyImpl.findUnusedKeys(), contains("unread1", "unread2"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void findingColdKeysRequiresAccessTracking() {
+        ropertyImpl.findColdKeys(1000);
+    }
+
+    @Test
+    public void coldKeysAreKeysNotReadRecently() {
+        ropertyImpl.setAccessTracking(true);
+        ropertyImpl.set("read", "value", null);
+        ropertyImpl.set("unread", "value", null);
+        ropertyImpl.get("read", null);
+        assertThat(ropertyImpl.getKeyValues("read").getLastAccess(), greaterThan(0L));
+        assertThat(ropertyImpl.findColdKeys(60000), contains("unread"));
+        assertThat(ropertyImpl.findColdKeys(-60000), contains("read", "unread"));
+    }
+
     @Test
     public void noDomainValuesAreRequestedWhenAKeyDoesNotExist() {
         ropertyImpl.addDomains("domain1", "domain2");
@@ -568,4 +696,13 @@ public class RopertyImplTest {
         ropertyWithPersistence.findKeys(substring, containerName);
         verify(persistenceMock).findKeys(substring, containerName);
     }
+
+    @Test
+    public void partialWildcardsAreResolvedLikeThePatternMatcher() {
+        ropertyImpl.addDomains("country", "language");
+        ropertyImpl.set("key", "default", null);
+        ropertyImpl.set("key", "partial", null, "d*");
+        assertThat(ropertyImpl.get("key", new MapBackedDomainResolver().set("country", "de")), is("partial"));
+        assertThat(ropertyImpl.get("key", new MapBackedDomainResolver().set("country", "at")), is("default"));
+    }
 }
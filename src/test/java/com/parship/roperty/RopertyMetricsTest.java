@@ -0,0 +1,114 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.parship.roperty.jmx.RopertyManager;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class RopertyMetricsTest {
+
+    private final Persistence persistence = mock(Persistence.class);
+
+    @Test
+    public void nothingIsRecordedWhileDisabled() {
+        RopertyImpl roperty = new RopertyImpl();
+        roperty.set("key", "value", null);
+        roperty.get("key", null);
+        RopertyMetrics metrics = roperty.getMetrics();
+        assertThat(metrics.isEnabled(), is(false));
+        assertThat(metrics.getGets(), is(0L));
+        assertThat(metrics.getSets(), is(0L));
+        assertThat(metrics.getGetHistogram().getCount(), is(0L));
+    }
+
+    @Test
+    public void getsSetsAndCacheMissesAreCountedWhenEnabled() {
+        when(persistence.loadAll(any(), any())).thenReturn(Collections.emptyMap());
+        RopertyImpl roperty = new RopertyImpl(persistence);
+        RopertyMetrics metrics = roperty.getMetrics();
+        metrics.setEnabled(true);
+        roperty.set("key", "value", null);
+        roperty.get("key", null);
+        roperty.get("unknownKey", null);
+        assertThat(metrics.getSets(), is(1L));
+        assertThat(metrics.getGets(), is(2L));
+        assertThat(metrics.getCacheMisses(), is(2L));
+        assertThat(metrics.getSetHistogram().getCount(), is(1L));
+        assertThat(metrics.getGetHistogram().getCount(), is(2L));
+        assertThat(metrics.getLoadHistogram().getCount(), is(2L));
+        assertThat(metrics.getStoreHistogram().getCount(), is(1L));
+    }
+
+    @Test
+    public void definingAKeyCountsAsOneGet() {
+        when(persistence.loadAll(any(), any())).thenReturn(Collections.emptyMap());
+        RopertyImpl roperty = new RopertyImpl(persistence);
+        RopertyMetrics metrics = roperty.getMetrics();
+        metrics.setEnabled(true);
+        roperty.getOrDefine("key", "value", null);
+        assertThat(metrics.getGets(), is(1L));
+        assertThat(metrics.getGetHistogram().getCount(), is(1L));
+        assertThat(metrics.getSets(), is(1L));
+        assertThat(roperty.getOrDefine("key", "other", null), is("value"));
+        assertThat(metrics.getGets(), is(2L));
+    }
+
+    @Test
+    public void reloadIsMeasured() {
+        when(persistence.loadAll(any(), any())).thenReturn(Collections.emptyMap());
+        when(persistence.reload(any(), any(), any())).thenReturn(Collections.emptyMap());
+        RopertyImpl roperty = new RopertyImpl(persistence);
+        roperty.getMetrics().setEnabled(true);
+        roperty.reload();
+        assertThat(roperty.getMetrics().getReloadHistogram().getCount(), is(1L));
+        assertThat(roperty.getMetrics().getReloadDurationHistogram().getCount(), is(1L));
+        roperty.getMetrics().reset();
+        assertThat(roperty.getMetrics().getReloadHistogram().getCount(), is(0L));
+    }
+
+    @Test
+    public void enabledMetricsAreReadableThroughAnMBean() throws Exception {
+        RopertyImpl roperty = new RopertyImpl();
+        roperty.enableMetrics("metricsTest");
+        roperty.get("key", null);
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.parship.roperty:type=RopertyMetrics,name=\"metricsTest\"");
+        try {
+            assertThat(mbs.getAttribute(objectName, "Gets"), is(1L));
+            assertThat(mbs.getAttribute(objectName, "Enabled"), is(true));
+        } finally {
+            RopertyManager.getInstance().unregisterMetrics("metricsTest");
+        }
+        assertThat(mbs.isRegistered(objectName), is(false));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class SamplingTracerTest {
+
+    private final RopertyImpl roperty = new RopertyImpl("country", "language");
+    private final MapBackedDomainResolver resolver = new MapBackedDomainResolver().set("country", "AT").set("language", "de");
+
+    @Test
+    public void tracesRecordTheWinnerAndTheScannedCandidates() {
+        SamplingTracer tracer = new SamplingTracer(1, 10);
+        roperty.setObserver(tracer);
+        roperty.set("key", "default", null);
+        roperty.set("key", "german", null, "DE");
+        roperty.set("key", "austrian", null, "AT", "de");
+        roperty.set("defaultOnly", "value", null);
+        assertThat(roperty.get("key", resolver), is("austrian"));
+        assertThat(roperty.get("key", new MapBackedDomainResolver().set("country", "CH")), is("default"));
+        assertThat(roperty.get("defaultOnly", resolver), is("value"));
+        assertThat(roperty.get("unknown", resolver), nullValue());
+        List<SamplingTracer.Trace> traces = tracer.getTraces();
+        assertThat(traces, hasSize(4));
+        assertThat(traces.get(0).getWinner().getPatternStr(), is("AT|de|"));
+        assertThat(traces.get(0).getCandidatesScanned(), is(1));
+        assertThat(traces.get(1).getWinner().getPatternStr(), is(""));
+        assertThat(traces.get(1).getCandidatesScanned(), is(3));
+        assertThat(traces.get(2).getCandidatesScanned(), is(0));
+        assertThat(traces.get(3).getWinner(), nullValue());
+        assertThat(traces.get(3).isCacheMiss(), is(true));
+        assertThat(traces.get(0).isCacheMiss(), is(false));
+    }
+
+    @Test
+    public void onlyTheMostRecentTracesAreKept() {
+        SamplingTracer tracer = new SamplingTracer(1, 2);
+        roperty.setObserver(tracer);
+        roperty.set("key", "value", null);
+        roperty.get("first", resolver);
+        roperty.get("second", resolver);
+        roperty.get("third", resolver);
+        assertThat(tracer.getTraces().get(0).getKey(), is("second"));
+        assertThat(tracer.getTraces().get(1).getKey(), is("third"));
+    }
+
+    @Test
+    public void observerIsNotifiedAboutPersistenceCallsAndReloads() {
+        Persistence persistence = mock(Persistence.class);
+        when(persistence.loadAll(any(), any())).thenReturn(Collections.emptyMap());
+        when(persistence.reload(any(), any(), any())).thenReturn(Collections.emptyMap());
+        RopertyImpl persistentRoperty = new RopertyImpl(persistence);
+        List<String> events = new ArrayList<>();
+        persistentRoperty.setObserver(new RopertyObserver() {
+            @Override
+            public void cacheMiss(final String key) {
+                events.add("miss " + key);
+            }
+
+            @Override
+            public void cacheHit(final String key) {
+                events.add("hit " + key);
+            }
+
+            @Override
+            public void persistenceCalled(final PersistenceOperation operation, final String key, final long durationNanos) {
+                events.add(operation + " " + key);
+            }
+
+            @Override
+            public void reloadStarted() {
+                events.add("reloadStarted");
+            }
+
+            @Override
+            public void reloadFinished(final long durationNanos) {
+                events.add("reloadFinished");
+            }
+        });
+        persistentRoperty.get("key", null);
+        persistentRoperty.set("key", "value", null);
+        persistentRoperty.reload();
+        assertThat(events, contains("miss key", "LOAD key", "miss key", "LOAD key", "STORE key", "reloadStarted", "RELOAD null", "reloadFinished"));
+    }
+
+    @Test
+    public void sampleRateIsRoundedUpToAPowerOfTwo() {
+        assertThat(new SamplingTracer(3, 1).getSampleRate(), is(4));
+    }
+
+    @Test
+    public void removingTheObserverRestoresTheNoOpObserver() {
+        roperty.setObserver(new SamplingTracer());
+        roperty.setObserver(null);
+        assertThat(roperty.getObserver(), is(RopertyObserver.NOOP));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Roperty - An advanced property management and retrival system
+ * Copyright (C) 2013 PARSHIP GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parship.roperty;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+
+public class SpaceSavingSketchTest {
+
+    @Test
+    public void countsAreExactWhileTheSketchIsNotFull() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(4);
+        sketch.offer("a");
+        sketch.offer("b");
+        sketch.offer("a");
+        sketch.offer("c");
+        sketch.offer("a");
+        sketch.offer("b");
+        assertThat(sketch.top(3).toString(), is("[a=3, b=2, c=1]"));
+        assertThat(sketch.top(1).toString(), is("[a=3]"));
+    }
+
+    @Test
+    public void newItemsReplaceTheLeastFrequentItemWhenFull() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a");
+        sketch.offer("a");
+        sketch.offer("b");
+        sketch.offer("c");
+        assertThat(sketch.size(), is(2));
+        assertThat(sketch.top(2).toString(), is("[a=2, c=2 (error 1)]"));
+    }
+
+    @Test
+    public void frequentItemsAreFoundInSkewedStreamsWithBoundedMemory() {
+        SpaceSavingSketch<Integer> sketch = new SpaceSavingSketch<>(20);
+        Random random = new Random(4711);
+        int[] counts = new int[10000];
+        for (int i = 0; i < 100000; i++) {
+            int item = random.nextInt(10) < 5 ? random.nextInt(5) : random.nextInt(counts.length);
+            counts[item]++;
+            sketch.offer(item);
+        }
+        assertThat(sketch.size(), is(20));
+        List<SpaceSavingSketch.Counter<Integer>> top = sketch.top(5);
+        for (SpaceSavingSketch.Counter<Integer> counter : top) {
+            assertThat(counter.getItem(), lessThanOrEqualTo(4));
+            assertThat(counter.getCount(), greaterThanOrEqualTo((long)counts[counter.getItem()]));
+            assertThat(counter.getCount() - counter.getError(), lessThanOrEqualTo((long)counts[counter.getItem()]));
+        }
+    }
+
+    @Test
+    public void clearRemovesAllItems() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a");
+        sketch.clear();
+        assertThat(sketch.size(), is(0));
+        assertThat(sketch.top(2).isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new SpaceSavingSketch<String>(0);
+    }
+}
@@ -68,6 +68,54 @@ public class ValuesStoreTest {
         assertThat(valuesStore.getAllValues().size(), is(1));
     }
 
+    @Test
+    public void nullKeyValuesAreNotStored() {
+        Map<String, KeyValues> values = new HashMap<>();
+        values.put("key", keyValues);
+        values.put("null", null);
+        values.put(null, keyValues);
+
+        valuesStore.setAllValues(values);
+
+        assertThat(valuesStore.getValuesFor("key"), is(keyValues));
+        assertThat(valuesStore.getAllValues().size(), is(1));
+        assertThat(valuesStore.getOrCreateKeyValues("created", null), nullValue());
+        assertThat(valuesStore.getAllValues().size(), is(1));
+    }
+
+    @Test
+    public void nullKeyValuesAreNotReloaded() {
+        Map<String, KeyValues> values = new HashMap<>();
+        values.put("key", keyValues);
+        values.put("null", null);
+        when(persistence.reload(any(Map.class), eq(keyValuesFactory), eq(domainSpecificValueFactory))).thenReturn(values);
+
+        valuesStore.reload();
+
+        assertThat(valuesStore.getValuesFor("key"), is(keyValues));
+        assertThat(valuesStore.getAllValues().size(), is(1));
+    }
+
+    @Test
+    public void keysAddedOrRemovedDuringAReloadAreKept() {
+        KeyValues createdDuringReload = mock(KeyValues.class);
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(mock(KeyValues.class), createdDuringReload);
+        valuesStore.getOrCreateKeyValues("removed", null);
+        when(persistence.reload(any(Map.class), eq(keyValuesFactory), eq(domainSpecificValueFactory))).thenAnswer(invocation -> {
+            Map<String, KeyValues> reloaded = new HashMap<>((Map<String, KeyValues>)invocation.getArguments()[0]);
+            valuesStore.getOrCreateKeyValues("created", null);
+            valuesStore.remove("removed");
+            reloaded.put("key", keyValues);
+            return reloaded;
+        });
+
+        valuesStore.reload();
+
+        assertThat(valuesStore.getValuesFor("key"), is(keyValues));
+        assertThat(valuesStore.getValuesFor("created"), is(createdDuringReload));
+        assertThat(valuesStore.getValuesFor("removed"), nullValue());
+    }
+
     @Test
     public void loadUnknownValuesFromPersistence() {
         when(persistence.load("key", keyValuesFactory, domainSpecificValueFactory)).thenReturn(keyValues);
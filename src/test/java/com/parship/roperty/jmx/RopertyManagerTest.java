@@ -17,6 +17,7 @@
 
 package com.parship.roperty.jmx;
 
+import com.parship.roperty.MapBackedDomainResolver;
 import com.parship.roperty.Roperty;
 import com.parship.roperty.RopertyImpl;
 import org.junit.Before;
@@ -126,6 +127,40 @@ public class RopertyManagerTest {
 	    verify(out, times(2)).println();
     }
 
+	@Test
+	public void lookupStatisticsCountLookupsWithoutResolving() {
+		RopertyImpl roperty = new RopertyImpl("dom");
+		roperty.setAccessTracking(true);
+		roperty.set("default", "value", null);
+		roperty.set("specific", "value", null, "val");
+		MapBackedDomainResolver resolver = new MapBackedDomainResolver().set("dom", "val");
+		roperty.get("default", resolver);
+		roperty.get("default", resolver);
+		roperty.get("specific", resolver);
+		assertThat(manager.getLookupStatistics(), is("LookupStatistics{defaultOnlyLookups=2, resolvedLookups=1}"));
+		assertThat(manager.getLookupStatistics("specific"), is("LookupStatistics{defaultOnlyLookups=0, resolvedLookups=1}\n"));
+	}
+
+	@Test
+	public void unusedAndColdKeysAreListed() {
+		RopertyImpl roperty = new RopertyImpl();
+		roperty.setAccessTracking(true);
+		roperty.set("read", "value", null);
+		roperty.set("unread", "value", null);
+		roperty.get("read", null);
+		assertThat(manager.listUnusedKeys(), is("unread"));
+		assertThat(manager.listColdKeys(60), is("unread"));
+	}
+
+	@Test
+	public void lookupPlansAreListed() {
+		RopertyImpl roperty = new RopertyImpl("dom");
+		roperty.set("key", "value", null, "val");
+		roperty.get("key", new MapBackedDomainResolver().set("dom", "val"));
+		assertThat(manager.getLookupPlans(), is("LookupPlans{LINEAR=1, INDEXED=0}"));
+		assertThat(manager.getLookupPlan("key"), containsString("KeyValuesStatistics{plan=LINEAR, valueCount=1, overrideCount=1"));
+	}
+
     @Test
     public void ignoresInstanceAlreadyExistsException() {
         new RopertyManager();